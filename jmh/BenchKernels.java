@@ -0,0 +1,161 @@
+import kenken.bench.Kernels;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * BenchKernels Object - Kernels over the solver classes (default package, see Kernels)
+ */
+
+public class BenchKernels implements Kernels {
+
+    @Override
+    public Supplier<Object> solver(String puzzleName, String engine) throws Exception {
+        Puzzle puzzle = load(puzzleName);
+        switch (engine) {
+            case "solveRec":
+                return () -> {
+                    SolveContext ctx = new SolveContext(puzzle);
+                    return ctx.solve() ? ctx.board : null;
+                };
+            case "iterative":
+                return () -> new IterativeSolver(puzzle).solve();
+            case "backjump":
+                return () -> new BackjumpSolver(puzzle).solve();
+            case "propagator":
+                return () -> new Propagator(puzzle).solve();
+            case "dlx":
+                return () -> new DancingLinks(puzzle).solve();
+            case "count2":
+                return () -> new Propagator(puzzle).countSolutions(2);
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    @Override
+    public Supplier<Object> cache(String puzzleName, String path) throws Exception {
+        Puzzle puzzle = load(puzzleName);
+        Function<Puzzle, int[]> solver = p -> new Propagator(p).solve();
+        // capacity 0: every lookup misses, and the stored solution is evicted right away
+        SolutionCache cache = new SolutionCache(path.equals("miss") ? 0 : 16);
+        cache.solve(puzzle, solver);
+        switch (path) {
+            case "solve":
+                return () -> solver.apply(puzzle);
+            case "miss":
+            case "exactHit":
+                return () -> solveCached(cache, puzzle, solver);
+            case "permutedHit":
+                // more distinct copies than the cache's capacity, so each one's exact layout has been evicted
+                // again by the time it comes round, and every lookup goes through the fingerprint
+                Puzzle[] copies = new Puzzle[64];
+                Random rand = new Random(copies.length);
+                for (int i = 0; i < copies.length; i++)
+                    copies[i] = permutedCopy(puzzle, rand);
+                int[] next = {0};
+                return () -> solveCached(cache, copies[next[0]++ & (copies.length - 1)], solver);
+            default:
+                throw new IllegalArgumentException("Unknown cache path: " + path);
+        }
+    }
+
+    private static int[] solveCached(SolutionCache cache, Puzzle puzzle, Function<Puzzle, int[]> solver) {
+        try {
+            return cache.solve(puzzle, solver);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * permutedCopy() - puzzle with rows and cols shuffled, transposed half of the time, cages in reverse file order
+     */
+    private static Puzzle permutedCopy(Puzzle puzzle, Random rand) {
+        int n = puzzle.boardSize;
+        int[] rowOf = shuffled(n, rand), colOf = shuffled(n, rand);
+        boolean transposed = rand.nextBoolean();
+        Cage[] cages = new Cage[puzzle.cages.length];
+        for (int c = 0; c < cages.length; c++) {
+            Cage cage = puzzle.cages[c];
+            int[] cells = new int[cage.cells.length];
+            for (int i = 0; i < cells.length; i++) {
+                int x = rowOf[cage.cells[i] / n], y = colOf[cage.cells[i] % n];
+                cells[i] = transposed ? y * n + x : x * n + y;
+            }
+            cages[cages.length - 1 - c] = new Cage(cage.total, cage.op, cells, cage.color, n);
+        }
+        return new Puzzle(n, cages);
+    }
+
+    private static int[] shuffled(int n, Random rand) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++)
+            a[i] = i;
+        for (int i = n - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1), tmp = a[i];
+            a[i] = a[j];
+            a[j] = tmp;
+        }
+        return a;
+    }
+
+    @Override
+    public Callable<Object> parser(String puzzleName, String format) throws Exception {
+        String path = Kernels.testFiles() + "/" + puzzleName;
+        if (format.equals("binary")) {
+            File binary = File.createTempFile(puzzleName, ".kkb");
+            binary.deleteOnExit();
+            try (PuzzleWriter writer = new PuzzleWriter(binary.getPath())) {
+                writer.write(Puzzle.readFile(path));
+            }
+            path = binary.getPath();
+        }
+        String file = path;
+        return () -> Puzzle.readFile(file);
+    }
+
+    /**
+     * load() - test file, or "generatedNxN": generated unique NxN puzzle (seed N)
+     */
+    private static Puzzle load(String puzzleName) throws IOException {
+        if (puzzleName.startsWith("generated")) {
+            int size = puzzleName.charAt("generated".length()) - '0';
+            return new Generator(size, size).generate();
+        }
+        return Puzzle.readFile(Kernels.testFiles() + "/" + puzzleName);
+    }
+
+    @Override
+    public LongSupplier cageCheck(char op, String check) {
+        int total = op == '+' ? 9 : op == '-' ? 3 : op == '*' ? 18 : 2;
+        List<Cage> cages = new ArrayList<>();
+        cages.add(new Cage(total, op, new int[] {0, 1}, Puzzle.getRandColor(), 6));
+        for (int cell = 2; cell < 36; cell++)
+            cages.add(new Cage(cell % 6 + 1, '#', new int[] {cell}, Puzzle.getRandColor(), 6));
+        SolveContext ctx = new SolveContext(new Puzzle(6, cages.toArray(new Cage[0])));
+        ctx.place(0, 6);
+        if (check.equals("solvable")) {
+            return () -> {
+                long ok = 0;
+                for (int value = 1; value <= 6; value++)
+                    ok += ctx.solvable(1, value) ? 1 : 0;
+                return ok;
+            };
+        }
+        return () -> {
+            long sum = 0;
+            for (int value = 1; value <= 6; value++)
+                sum += ctx.getCageTotalWithValue(0, value);
+            return sum;
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package kenken.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.function.Supplier;
+
+/**
+ * CacheBenchmark - SolutionCache lookups (miss, exact-layout hit, permuted-copy hit) against solving uncached,
+ * so the cache's overhead on misses and its saving on hits can be read off side by side
+ */
+
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+    @Param({"kenken4-1.txt", "kenken6-2.txt", "generated9x9"})
+    public String puzzle;
+
+    @Param({"solve", "miss", "exactHit", "permutedHit"})
+    public String path;
+
+    private Supplier<Object> lookup;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        lookup = Kernels.load().cache(puzzle, path);
+    }
+
+    @Benchmark
+    public Object lookup() {
+        return lookup.get();
+    }
+}
@@ -0,0 +1,40 @@
+package kenken.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.function.LongSupplier;
+
+/**
+ * CageBenchmark - solvable() and getCageTotalWithValue() per cage op, in isolation (6 values per op)
+ */
+
+@State(Scope.Benchmark)
+public class CageBenchmark {
+    @Param({"+", "-", "*", "/"})
+    public char op;
+
+    private LongSupplier solvable;
+    private LongSupplier cageTotal;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Kernels kernels = Kernels.load();
+        solvable = kernels.cageCheck(op, "solvable");
+        cageTotal = kernels.cageCheck(op, "getCageTotalWithValue");
+    }
+
+    @Benchmark
+    public long solvable() {
+        return solvable.getAsLong();
+    }
+
+    @Benchmark
+    public long getCageTotalWithValue() {
+        return cageTotal.getAsLong();
+    }
+}
@@ -0,0 +1,60 @@
+package kenken.bench;
+
+import java.util.concurrent.Callable;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Kernels Interface - the operations benchmarks measure. JMH only runs benchmark classes in a named package, and
+ * named packages can't see the solver's default package, so the default-package BenchKernels implements this
+ * and benchmarks call it through the interface (one implementation: the JIT inlines the call away).
+ */
+
+public interface Kernels {
+    /**
+     * solver() - one full solve per call of the returned Supplier
+     * @param puzzleName test file name, or "generatedNxN" for a generated (unique) NxN puzzle (seed N)
+     * @param engine solveRec, iterative, backjump, propagator, dlx, or count2 (uniqueness check)
+     */
+    Supplier<Object> solver(String puzzleName, String engine) throws Exception;
+
+    /**
+     * cache() - one SolutionCache.solve() (or, for "solve", one uncached propagator solve) per call
+     * @param puzzleName as for solver()
+     * @param path "solve" (no cache), "miss" (fingerprint, solve, store), "exactHit" (the cached puzzle itself, found by
+     * its exact layout) or "permutedHit" (row/col-shuffled, maybe transposed copies of it, found by fingerprint)
+     */
+    Supplier<Object> cache(String puzzleName, String path) throws Exception;
+
+    /**
+     * parser() - one read of the puzzle per call of the returned Callable
+     * @param puzzleName test file name
+     * @param format "text" (the test file) or "binary" (a temp .kkb copy of it)
+     */
+    Callable<Object> parser(String puzzleName, String format) throws Exception;
+
+    /**
+     * cageCheck() - one round of cage checks per call: a 6x6 board whose first row starts with a 2-cell cage
+     * using op, first cell filled, every value tried in the second cell
+     * @param check "solvable" or "getCageTotalWithValue"
+     */
+    LongSupplier cageCheck(char op, String check);
+
+    /**
+     * load() - the BenchKernels implementation
+     */
+    static Kernels load() {
+        try {
+            return (Kernels) Class.forName("BenchKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * testFiles() - directory of the bundled puzzles (-Dkenken.testFiles, default test_files)
+     */
+    static String testFiles() {
+        return System.getProperty("kenken.testFiles", "test_files");
+    }
+}
@@ -0,0 +1,36 @@
+package kenken.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.Callable;
+
+/**
+ * ParseBenchmark - reads each bundled puzzle from its text file, and from the same puzzle in binary format
+ */
+
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+    @Param({"kenken3-1.txt", "kenken3-2.txt", "kenken4-1.txt", "kenken6-1.txt", "kenken6-2.txt", "kenken6-3.txt",
+            "kenken6-4.txt"})
+    public String puzzle;
+
+    @Param({"text", "binary"})
+    public String format;
+
+    private Callable<Object> parse;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        parse = Kernels.load().parser(puzzle, format);
+    }
+
+    @Benchmark
+    public Object parse() throws Exception {
+        return parse.call();
+    }
+}
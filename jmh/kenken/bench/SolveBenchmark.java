@@ -0,0 +1,37 @@
+package kenken.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.function.Supplier;
+
+/**
+ * SolveBenchmark - full solves of each bundled puzzle and of generated (unique) 7x7 - 9x9 puzzles, per engine
+ * (plain DFS, iterative, backjump, propagator, dlx) plus uniqueness checks (count2)
+ */
+
+@State(Scope.Benchmark)
+public class SolveBenchmark {
+    @Param({"kenken3-1.txt", "kenken3-2.txt", "kenken4-1.txt", "kenken6-1.txt", "kenken6-2.txt", "kenken6-3.txt",
+            "kenken6-4.txt", "generated7x7", "generated8x8", "generated9x9"})
+    public String puzzle;
+
+    @Param({"solveRec", "iterative", "backjump", "propagator", "dlx", "count2"})
+    public String engine;
+
+    private Supplier<Object> solve;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        solve = Kernels.load().solver(puzzle, engine);
+    }
+
+    @Benchmark
+    public Object solve() {
+        return solve.get();
+    }
+}
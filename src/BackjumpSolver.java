@@ -0,0 +1,317 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * BackjumpSolver Object - the row-major DFS of IterativeSolver with conflict-directed backjumping (CBJ) and
+ * nogood learning, so a dead end caused by an early row/col/cage assignment doesn't thrash through every cell
+ * placed since then.
+ * Each cell on the stack keeps a conflict set: the earlier cells whose values ruled out its values
+ *  - row/col: the earlier cell in cell's row/col that holds the value
+ *  - cage:    the cage's earlier (filled) cells, when solvable() rejects the value
+ *  - nogood:  the other cells of the learned nogood that ruled the value out
+ *  - subtree: the conflict set of a child that jumped back to cell (minus cell itself)
+ * Once every value of a cell fails, search jumps straight back to the deepest cell in its conflict set, undoing
+ * every cell in between, and hands that cell the rest of the set. The failed set itself is a nogood (those cells
+ * can't all keep their values in any solution): short ones are stored, indexed by their deepest cell and value,
+ * and checked whenever that value is placed there again in a later branch.
+ * All stacks and the nogood store are preallocated; learning stops once the store is full.
+ */
+
+class BackjumpSolver {
+    // longest nogood stored (long ones rarely match again, and every stored one is checked on each placement)
+    private static final int MAX_NOGOOD_SIZE = 6;
+    // nogoods stored per board cell
+    private static final int NOGOODS_PER_CELL = 32;
+
+    private final Puzzle puzzle;
+    private final SolveContext ctx;     // board, row/col masks and cage running totals
+    private final int boardSize;
+    private final int cellCount;
+    private final int[] untried;        // values not yet tried at each cell (bitmask), one stack frame per cell
+    private final int words;            // longs per conflict set
+    private final long[] conflicts;     // conflict set of each cell (bit per earlier cell), at [cell * words]
+    private int cell;                   // current depth (cell id), cellCount once solved, -1 once exhausted
+    private boolean entering = true;    // cell not yet visited (its untried values and conflicts aren't set yet)
+
+    // learned nogoods: linked lists by (deepest cell, its value), literals of the other cells in a shared pool
+    private final int[] nogoodHead;     // first nogood of (cell, value), at [cell * (boardSize + 1) + value], -1 if none
+    private final int[] nogoodNext;     // next nogood with the same (cell, value), -1 if last
+    private final int[] nogoodStart;    // index of each nogood's first literal in literalCell/literalValue
+    private final int[] nogoodLength;   // number of literals of each nogood
+    private final int[] literalCell;
+    private final int[] literalValue;
+    private int nogoodCount;
+    private int literalCount;
+    private final int maxNogoods;       // store size (NOGOODS_PER_CELL * cellCount)
+
+    private long nodes;                 // search tree nodes visited
+    private long skipped;               // cells undone by backjumps without trying their other values
+    private long nogoodPrunes;          // values ruled out by a learned nogood
+
+    // set when search should stop (solve was cancelled)
+    private final AtomicBoolean cancelled;
+
+    // search counters of this solve (null unless SearchStats.ENABLED)
+    final SearchStats stats;
+
+    /**
+     * BackjumpSolver constructor - search state for puzzle, positioned at cell 0 of the empty board
+     * @param puzzle Puzzle to solve
+     * @param cancelled search stops (solve() returns null) once this is set
+     */
+    BackjumpSolver(Puzzle puzzle, AtomicBoolean cancelled) {
+        this.puzzle = puzzle;
+        this.ctx = new SolveContext(puzzle, cancelled);
+        this.boardSize = puzzle.boardSize;
+        this.cellCount = boardSize * boardSize;
+        this.untried = new int[cellCount];
+        this.words = (cellCount + 63) >>> 6;
+        this.conflicts = new long[cellCount * words];
+        this.nogoodHead = new int[cellCount * (boardSize + 1)];
+        java.util.Arrays.fill(nogoodHead, -1);
+        this.maxNogoods = NOGOODS_PER_CELL * cellCount;
+        this.nogoodNext = new int[maxNogoods];
+        this.nogoodStart = new int[maxNogoods];
+        this.nogoodLength = new int[maxNogoods];
+        // deepest cell of a nogood is its key, not a literal
+        this.literalCell = new int[maxNogoods * (MAX_NOGOOD_SIZE - 1)];
+        this.literalValue = new int[maxNogoods * (MAX_NOGOOD_SIZE - 1)];
+        this.cancelled = cancelled;
+        this.stats = SearchStats.ENABLED ? new SearchStats("backjump", puzzle) : null;
+    }
+
+    /**
+     * BackjumpSolver constructor - never cancelled
+     * @param puzzle Puzzle to solve
+     */
+    BackjumpSolver(Puzzle puzzle) {
+        this(puzzle, new AtomicBoolean());
+    }
+
+    /**
+     * solve() - searches for a solution
+     * @return solved board values (cell id -> value), or null if the board has no solution (or solve was cancelled)
+     */
+    int[] solve() {
+        if (SearchStats.ENABLED)
+            stats.start();
+        boolean solved = search();
+        if (SearchStats.ENABLED)
+            stats.finish(solved);
+        return solved ? ctx.board : null;
+    }
+
+    /**
+     * getBoard() - board of the search (cell id -> value, solved once solve() returned it)
+     */
+    int[] getBoard() {
+        return ctx.board;
+    }
+
+    /**
+     * getNodes() - number of search tree nodes visited
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * getSkipped() - number of cells backjumps undid without trying their other values
+     */
+    long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * getNogoods() - number of nogoods learned
+     */
+    int getNogoods() {
+        return nogoodCount;
+    }
+
+    /**
+     * getNogoodPrunes() - number of values ruled out by learned nogoods
+     */
+    long getNogoodPrunes() {
+        return nogoodPrunes;
+    }
+
+    /**
+     * search() - CBJ over cells in row-major order (explicit stack, see IterativeSolver)
+     * @return true if board is solved, false if no solution (or search was cancelled)
+     */
+    private boolean search() {
+        while (true) {
+            // base case: every cell of board is filled with working solutions
+            if (cell == cellCount)
+                return true;
+            // jumped back past cell 0: no board solution
+            if (cell < 0)
+                return false;
+            // cancelled: unwind without a solution
+            if (cancelled.get())
+                return false;
+
+            // new node: push frame with the values that can be placed in cell, and why the others can't
+            if (entering) {
+                nodes++;
+                if (SearchStats.ENABLED)
+                    stats.node(cell);
+                untried[cell] = ctx.candidates(cell);
+                java.util.Arrays.fill(conflicts, cell * words, (cell + 1) * words, 0);
+                addRowColConflicts(cell);
+                entering = false;
+            }
+
+            // next untried value (lowest set bit first) not ruled out by its cage or a learned nogood
+            int bits = untried[cell];
+            int value = 0;
+            while (bits != 0 && value == 0) {
+                int i = Integer.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (!ctx.solvable(cell, i)) {
+                    addCageConflicts(cell);
+                    if (SearchStats.ENABLED)
+                        stats.cageRejections[puzzle.cageOfCell[cell]]++;
+                } else if (!ruledOut(cell, i)) {
+                    value = i;
+                }
+            }
+            untried[cell] = bits;
+
+            if (value != 0) {
+                // add value to board at cell, step down to next cell
+                ctx.place(cell, value);
+                cell++;
+                entering = true;
+            } else {
+                backjump();
+            }
+        }
+    }
+
+    /**
+     * backjump() - every value of cell failed: learns the conflict set as a nogood, jumps back to its deepest
+     * cell (undoing every cell in between) and merges the rest of the set into that cell's set
+     */
+    private void backjump() {
+        int base = cell * words;
+        int target = -1;
+        for (int w = words - 1; w >= 0 && target < 0; w--) {
+            if (conflicts[base + w] != 0)
+                target = (w << 6) + 63 - Long.numberOfLeadingZeros(conflicts[base + w]);
+        }
+        // no earlier cell involved: no value of cell works whatever is placed before it
+        if (target < 0) {
+            cell = -1;
+            return;
+        }
+
+        learn(cell, target);
+        int targetBase = target * words;
+        for (int w = 0; w < words; w++)
+            conflicts[targetBase + w] |= conflicts[base + w];
+        conflicts[targetBase + (target >>> 6)] &= ~(1L << target);
+
+        // undo cells between target and cell, then target's value (its next value is tried)
+        skipped += cell - 1 - target;
+        if (SearchStats.ENABLED)
+            stats.backtracks++;
+        for (int c = cell - 1; c >= target; c--)
+            ctx.remove(c, ctx.board[c]);
+        cell = target;
+    }
+
+    /**
+     * learn() - stores the conflict set of cell (each cell in it with its current value) as a nogood, indexed
+     * by its deepest cell target, unless it is too long or the store is full
+     */
+    private void learn(int cell, int target) {
+        int base = cell * words;
+        int size = 0;
+        for (int w = 0; w < words; w++)
+            size += Long.bitCount(conflicts[base + w]);
+        if (size > MAX_NOGOOD_SIZE || nogoodCount == maxNogoods)
+            return;
+
+        int nogood = nogoodCount++;
+        nogoodStart[nogood] = literalCount;
+        nogoodLength[nogood] = size - 1;
+        for (int w = 0; w < words; w++) {
+            for (long set = conflicts[base + w]; set != 0; set &= set - 1) {
+                int c = (w << 6) + Long.numberOfTrailingZeros(set);
+                if (c == target)
+                    continue;
+                literalCell[literalCount] = c;
+                literalValue[literalCount++] = ctx.board[c];
+            }
+        }
+        int key = target * (boardSize + 1) + ctx.board[target];
+        nogoodNext[nogood] = nogoodHead[key];
+        nogoodHead[key] = nogood;
+    }
+
+    /**
+     * ruledOut() - true if placing value in cell completes a learned nogood (its cells are added to cell's
+     * conflict set)
+     */
+    private boolean ruledOut(int cell, int value) {
+        for (int nogood = nogoodHead[cell * (boardSize + 1) + value]; nogood != -1; nogood = nogoodNext[nogood]) {
+            int start = nogoodStart[nogood], end = start + nogoodLength[nogood];
+            int i = start;
+            while (i < end && ctx.board[literalCell[i]] == literalValue[i])
+                i++;
+            if (i == end) {
+                for (i = start; i < end; i++)
+                    addConflict(cell, literalCell[i]);
+                nogoodPrunes++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * addRowColConflicts() - adds to cell's conflict set the earlier cells in its row/col holding a value its cage
+     * allows (row first, col only for values the row doesn't already hold)
+     */
+    private void addRowColConflicts(int cell) {
+        int x = cell / boardSize, y = cell % boardSize;
+        int allowed = puzzle.candidateMask[cell];
+        int rowUsed = 0;
+        // row-major order: cells left of cell in its row, and above it in its col, are the filled ones
+        for (int j = 0; j < y; j++) {
+            int bit = 1 << ctx.board[x * boardSize + j];
+            if ((allowed & bit) != 0) {
+                addConflict(cell, x * boardSize + j);
+                rowUsed |= bit;
+            }
+        }
+        for (int i = 0; i < x; i++) {
+            int bit = 1 << ctx.board[i * boardSize + y];
+            if ((allowed & bit & ~rowUsed) != 0) {
+                addConflict(cell, i * boardSize + y);
+                if (SearchStats.ENABLED)
+                    stats.colRejections++;
+            }
+        }
+        if (SearchStats.ENABLED)
+            stats.rowRejections += Integer.bitCount(rowUsed);
+    }
+
+    /**
+     * addCageConflicts() - adds to cell's conflict set the filled (earlier) cells of cell's cage
+     */
+    private void addCageConflicts(int cell) {
+        for (int c : puzzle.cages[puzzle.cageOfCell[cell]].cells) {
+            if (c < cell)
+                addConflict(cell, c);
+        }
+    }
+
+    /**
+     * addConflict() - adds earlier cell c to cell's conflict set
+     */
+    private void addConflict(int cell, int c) {
+        conflicts[cell * words + (c >>> 6)] |= 1L << c;
+    }
+}
@@ -0,0 +1,325 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * BatchSolver Object - headless batch mode: solves every puzzle in a set of files/directories on a bounded
+ * thread pool, and hands each Result to a consumer as soon as that puzzle is solved (results arrive in
+ * completion order, not file order).
+ * Puzzles are streamed out of each file (PuzzleReader) as the pool has room, so memory stays bounded
+ * for large corpora.
+ *
+ * Puzzles can be answered from a SolutionCache (in memory, optionally backed by a store file), so repeats of a
+ * puzzle (also permuted/transposed copies) are only searched once.
+ *
+ * Puzzles are solved with Propagator unless another engine is picked (-engine, see Solver), and with -check
+ * every engine solves every puzzle too, and engines giving invalid or missing solutions are reported.
+ * Search nodes are reported for every engine (parallel: all subtasks together, portfolio: the winning
+ * configuration's).
+ *
+ * Usage: java KenKen batch [-threads N] [-cache N] [-store file] [-engine name] [-check] path...
+ *        (path = puzzle file (text or binary), multi-puzzle file, or directory)
+ */
+
+class BatchSolver {
+    private final int threads;  // number of worker threads
+    private final SolutionCache cache;  // null if every puzzle is searched
+    private final String engine;        // engine name (see Solver.NAMES)
+    private final boolean check;        // cross-check every engine on every puzzle
+
+    /**
+     * BatchSolver constructor
+     * @param threads number of puzzles solved at once
+     */
+    BatchSolver(int threads) {
+        this(threads, null);
+    }
+
+    /**
+     * BatchSolver constructor
+     * @param threads number of puzzles solved at once
+     * @param cache cache of solutions looked up before searching, null for none
+     */
+    BatchSolver(int threads, SolutionCache cache) {
+        this(threads, cache, "propagator", false);
+    }
+
+    /**
+     * BatchSolver constructor
+     * @param threads number of puzzles solved at once
+     * @param cache cache of solutions looked up before searching, null for none
+     * @param engine name of the engine solving each puzzle (one of Solver.NAMES)
+     * @param check true to also solve each puzzle with every engine and report engines that get it wrong
+     * @throws IllegalArgumentException if engine is unknown
+     */
+    BatchSolver(int threads, SolutionCache cache, String engine, boolean check) {
+        this.threads = threads;
+        this.cache = cache;
+        this.engine = engine;
+        this.check = check;
+        if (Solver.get(engine) == null)
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+
+    /**
+     * main() - parses command line args, solves every puzzle in the given paths, prints each result as it finishes
+     * @param args [-threads N] [-cache N] [-store file] [-engine name] [-check] path...
+     */
+    static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int capacity = 0;
+        String storeFile = null;
+        String engine = "propagator";
+        boolean check = false;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-threads") && i + 1 < args.length)
+                threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-cache") && i + 1 < args.length)
+                capacity = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-store") && i + 1 < args.length)
+                storeFile = args[++i];
+            else if (args[i].equals("-engine") && i + 1 < args.length)
+                engine = args[++i];
+            else if (args[i].equals("-check"))
+                check = true;
+            else
+                paths.add(args[i]);
+        }
+        if (paths.isEmpty() || Solver.get(engine) == null) {
+            System.err.println("Usage: java KenKen batch [-threads N] [-cache N] [-store file] [-engine "
+                    + String.join("|", Solver.NAMES) + "] [-check] path...");
+            return;
+        }
+        // -store alone caches with the default capacity
+        if (storeFile != null && capacity == 0)
+            capacity = SolutionCache.DEFAULT_CAPACITY;
+
+        SolutionCache cache = null;
+        try {
+            if (storeFile != null)
+                cache = new SolutionCache(capacity, storeFile);
+            else if (capacity > 0)
+                cache = new SolutionCache(capacity);
+            // print is synchronized, each result prints as one block
+            new BatchSolver(threads, cache, engine, check).solve(paths, result -> System.out.print(result));
+            if (cache != null)
+                System.err.println("Cache: " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                if (cache != null)
+                    cache.close();
+            } catch (IOException e) {
+                System.err.println("Error reading file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * solve() - solves every puzzle in paths, blocks until all are done
+     * @param paths puzzle files, multi-puzzle files, or directories (searched recursively for files)
+     * @param results called with each Result (from a worker thread) as soon as its puzzle is solved
+     * @throws InterruptedException if interrupted while waiting for puzzles to finish
+     */
+    void solve(List<String> paths, Consumer<Result> results) throws InterruptedException {
+        // bounded queue: once full, the reading thread solves a puzzle itself instead of reading further ahead
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (String path : paths) {
+                for (Path file : listFiles(path)) {
+                    try (PuzzleReader reader = new PuzzleReader(file.toString())) {
+                        Puzzle puzzle;
+                        // name later puzzles of multi-puzzle files by their index in the file
+                        for (int i = 0; (puzzle = reader.next()) != null; i++) {
+                            String name = i == 0 ? file.toString() : file + "#" + i;
+                            Puzzle next = puzzle;
+                            executor.execute(() -> results.accept(solveOne(name, next)));
+                        }
+                    } catch (IOException e) {
+                        // rest of a malformed file is skipped, puzzles before the error are still solved
+                        System.err.println("Error reading file: " + e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * solveOne() - solves puzzle with the engine (unless cache has it), times it, cross-checks it if asked to
+     * @param name name reported with the result
+     * @param puzzle Puzzle to solve
+     * @return Result of solve (0 nodes if answered from cache)
+     */
+    Result solveOne(String name, Puzzle puzzle) {
+        long start = System.nanoTime();
+        // nodes and stats of the search, if one ran
+        long[] nodes = {0};
+        SearchStats[] stats = new SearchStats[1];
+        Function<Puzzle, int[]> search = p -> search(p, nodes, stats);
+        int[] board;
+        if (cache == null) {
+            board = search.apply(puzzle);
+        } else {
+            int[][] searched = new int[1][];
+            try {
+                board = cache.solve(puzzle, p -> searched[0] = search.apply(p));
+            } catch (IOException e) {
+                // store file failed: keep the board if it was already searched, else search now
+                System.err.println("Error reading file: " + e.getMessage());
+                board = searched[0] != null ? searched[0] : search.apply(puzzle);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (check)
+            crossCheck(name, puzzle, board);
+        return new Result(name, puzzle.boardSize, board, nanos, nodes[0], stats[0]);
+    }
+
+    /**
+     * search() - solves puzzle with the engine, run directly (not through Solver) to read its node count
+     * @param nodes nodes[0] set to search tree nodes visited
+     * @param stats stats[0] set to the search counters (null unless SearchStats.ENABLED and the engine keeps them)
+     * @return solved board, or null if no solution
+     */
+    private int[] search(Puzzle puzzle, long[] nodes, SearchStats[] stats) {
+        // dlx falls back to the propagator for puzzles it doesn't fit (as Solver.get("dlx") does)
+        switch (engine.equals("dlx") && !DancingLinks.fits(puzzle) ? "propagator" : engine) {
+            case "iterative": {
+                IterativeSolver iterative = new IterativeSolver(puzzle);
+                int[] board = iterative.solve();
+                nodes[0] = iterative.getNodes();
+                return board;
+            }
+            case "backjump": {
+                BackjumpSolver backjump = new BackjumpSolver(puzzle);
+                int[] board = backjump.solve();
+                nodes[0] = backjump.getNodes();
+                stats[0] = backjump.stats;
+                return board;
+            }
+            case "dlx": {
+                DancingLinks dlx = new DancingLinks(puzzle);
+                int[] board = dlx.solve();
+                nodes[0] = dlx.getNodes();
+                return board;
+            }
+            case "dfs": {
+                SolveContext ctx = new SolveContext(puzzle);
+                boolean solved = ctx.solve();
+                nodes[0] = ctx.getNodes();
+                stats[0] = ctx.stats;
+                return solved ? ctx.board : null;
+            }
+            case "parallel":
+                return new ParallelSolver().solve(puzzle, new AtomicBoolean(), nodes);
+            case "portfolio": {
+                PortfolioSolver.Outcome outcome = PortfolioSolver.getDefault().race(puzzle, new AtomicBoolean());
+                nodes[0] = outcome.nodes;
+                return outcome.board;
+            }
+            // "propagator" (the constructor rejects unknown engines)
+            default: {
+                Propagator propagator = new Propagator(puzzle);
+                int[] board = propagator.solve();
+                nodes[0] = propagator.getNodes();
+                stats[0] = propagator.getStats();
+                return board;
+            }
+        }
+    }
+
+    /**
+     * crossCheck() - solves puzzle with every engine, reports (to System.err) any board that isn't a valid
+     * solution and any engine that disagrees with board on whether puzzle has a solution
+     * @param board board solveOne() found (null if none)
+     */
+    private static void crossCheck(String name, Puzzle puzzle, int[] board) {
+        if (board != null && !puzzle.isSolution(board))
+            System.err.println("Check failed: " + name + ": solution is invalid");
+        for (String engine : Solver.NAMES) {
+            int[] other = Solver.get(engine).solve(puzzle);
+            if (other == null && board != null)
+                System.err.println("Check failed: " + name + ": " + engine + " found no solution");
+            else if (other != null && !puzzle.isSolution(other))
+                System.err.println("Check failed: " + name + ": " + engine + " gave an invalid solution");
+            else if (other != null && board == null)
+                System.err.println("Check failed: " + name + ": " + engine + " found a solution the engine missed");
+        }
+    }
+
+    /**
+     * listFiles() - path itself if it is a file, else every regular file under the directory (sorted)
+     */
+    private static List<Path> listFiles(String path) {
+        Path root = Paths.get(path);
+        if (!Files.isDirectory(root))
+            return List.of(root);
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            System.err.println("Error reading directory: " + path + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Result Object - outcome of solving one puzzle
+     */
+    static class Result {
+        final String name;      // file name (with #index for multi-puzzle files)
+        final int boardSize;
+        final int[] board;      // solved board (cell id = x * boardSize + y), null if no solution
+        final long nanos;       // wall time of solve
+        final long nodes;       // search tree nodes visited (0 if answered from cache)
+        final SearchStats stats;    // detailed counters (null unless SearchStats.ENABLED)
+
+        Result(String name, int boardSize, int[] board, long nanos, long nodes, SearchStats stats) {
+            this.name = name;
+            this.boardSize = boardSize;
+            this.board = board;
+            this.nanos = nanos;
+            this.nodes = nodes;
+            this.stats = stats;
+        }
+
+        /**
+         * toString() - header line (name, time, nodes) followed by one line per board row, laid out like the
+         * GUI's solved board (row = y, col = x, i.e. line y holds cells x * boardSize + y)
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(name)
+                    .append(board == null ? ": no solution" : ": solved")
+                    .append(String.format(" in %.3f ms, %d nodes%n", nanos / 1e6, nodes));
+            if (stats != null)
+                sb.append(stats);
+            if (board != null) {
+                for (int y = 0; y < boardSize; y++) {
+                    for (int x = 0; x < boardSize; x++)
+                        sb.append(x == 0 ? "" : " ").append(board[x * boardSize + y]);
+                    sb.append(System.lineSeparator());
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.awt.Color;
+
+/**
+ * Cage Object - contains all info related to a Cage on the board
+ * [Cage is read-only once created, so it can be shared by any number of solves;
+ * running totals of a solve are kept in SolveContext]
+ */
+
+class Cage {
+    // Cage instance variables
+    final int total;    // group total
+    final char op;      // operator for group
+    final int[] cells;  // cell ids (x * boardSize + y) that make up Cage
+    final Color color;  // random assigned Color
+    final CageDomain domain;    // valid value tuples of cage
+
+    /**
+     * Cage constructor - initializes Cage instance variables, gets cage's CageDomain
+     * (valid tuples of values for cage's op/total and shape)
+     * @param total group total to achieve
+     * @param op cage operator
+     * @param cells array of cell ids in group
+     * @param color Color value assigned to Cage at creation by Puzzle.getRandColor() function
+     * @param boardSize size of board cells are on
+     */
+    Cage(int total, char op, int[] cells, Color color, int boardSize) {
+        // set Cage instance variables:
+        this.total = total;
+        this.op = op;
+        this.cells = cells;
+        this.color = color;
+
+        // split cage cells into x and y coords
+        int[] xs = new int[cells.length];
+        int[] ys = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            xs[i] = cells[i] / boardSize;
+            ys[i] = cells[i] % boardSize;
+        }
+        // get (cached) domain of cage
+        this.domain = CageDomain.get(op, total, boardSize, xs, ys);
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CageDomain Object - every tuple of values that satisfies a cage's op/total, given that
+ * positions sharing a row or col can't repeat a value, and the candidate mask of each
+ * position derived from those tuples.
+ * Big cages can have millions of tuples, so enumeration stops after MAX_TUPLES tuples (or MAX_ENUMERATE_NODES
+ * partial tuples): such a domain lists no tuples, its masks come from op/total bounds only, and solvers check
+ * the cage's total once it is full instead (isListed()).
+ * Domains are cached by (op, total, boardSize, shape), so a cage shape seen before is only enumerated once.
+ * The cache is bounded (MAX_CACHED_TUPLES over all domains, MAX_CACHED_DOMAINS keys), and enumeration runs
+ * outside any lock (two threads may both enumerate a new shape, the first one cached wins)
+ */
+
+class CageDomain {
+    // most tuples listed per domain, and partial tuples tried while enumerating one
+    static final int MAX_TUPLES = 1 << 14;
+    private static final long MAX_ENUMERATE_NODES = 1 << 18;
+    // most tuples (over all domains) and domains kept in the cache, later shapes are enumerated but not cached
+    private static final long MAX_CACHED_TUPLES = 1 << 19;
+    private static final int MAX_CACHED_DOMAINS = 1 << 16;
+
+    // cache of CageDomains already enumerated, key built by getKey()
+    private static final ConcurrentHashMap<String, CageDomain> cache = new ConcurrentHashMap<>();
+    private static final AtomicLong cachedTuples = new AtomicLong();
+
+    final int[][] tuples;    // every valid tuple (tuples[t][i] = value of i-th position in cage), null if not listed
+    final int[] cellMasks;   // bitmask of values each position can hold (bit v set if some tuple has v there)
+
+    /**
+     * CageDomain constructor - stores tuples, derives cellMasks from them
+     * @param tuples valid value tuples for the cage
+     * @param size number of positions in the cage
+     */
+    private CageDomain(int[][] tuples, int size) {
+        this.tuples = tuples;
+        this.cellMasks = new int[size];
+        // OR every tuple's value into its position's mask
+        for (int[] tuple : tuples) {
+            for (int i = 0; i < size; i++)
+                cellMasks[i] |= 1 << tuple[i];
+        }
+    }
+
+    /**
+     * CageDomain constructor - domain that lists no tuples, every position gets mask
+     * @param mask bitmask of values any position can hold (op/total bounds)
+     * @param size number of positions in the cage
+     */
+    private CageDomain(int mask, int size) {
+        this.tuples = null;
+        this.cellMasks = new int[size];
+        java.util.Arrays.fill(cellMasks, mask);
+    }
+
+    /**
+     * isListed() - true if tuples holds every valid tuple (false if the cage has too many to list)
+     */
+    boolean isListed() {
+        return tuples != null;
+    }
+
+    /**
+     * get() - gets CageDomain for cage from cache, enumerates (and caches, while the cache has room) it if the
+     * shape hasn't been seen
+     * @param op cage operator
+     * @param total cage total
+     * @param boardSize size of board (values are 1 - boardSize)
+     * @param xs x coord (row) of each position in cage
+     * @param ys y coord (col) of each position in cage
+     * @return CageDomain for cage
+     */
+    static CageDomain get(char op, int total, int boardSize, int[] xs, int[] ys) {
+        String key = getKey(op, total, boardSize, xs, ys);
+        CageDomain domain = cache.get(key);
+        if (domain != null)
+            return domain;
+
+        // not cached yet, enumerate tuples (bounds only if there are too many)
+        ArrayList<int[]> tuples = new ArrayList<>();
+        long[] nodes = new long[1];
+        if (enumerate(op, total, boardSize, xs, ys, new int[xs.length], 0, tuples, nodes))
+            domain = new CageDomain(tuples.toArray(new int[0][]), xs.length);
+        else
+            domain = new CageDomain(boundsMask(op, total, boardSize, xs.length), xs.length);
+
+        // cache it if there's room left
+        int count = domain.isListed() ? domain.tuples.length : 0;
+        if (cache.size() < MAX_CACHED_DOMAINS && cachedTuples.addAndGet(count) <= MAX_CACHED_TUPLES) {
+            CageDomain cached = cache.putIfAbsent(key, domain);
+            if (cached == null)
+                return domain;
+            // another thread cached the same shape first
+            domain = cached;
+        }
+        cachedTuples.addAndGet(-count);
+        return domain;
+    }
+
+    /**
+     * boundsMask() - values a position of a cage with size positions can hold, from op/total alone
+     * ('+': the other positions add 1 - boardSize each, '*': value divides total, '#': total, '-'/'/': any)
+     */
+    private static int boundsMask(char op, int total, int boardSize, int size) {
+        int mask = 0;
+        for (int value = 1; value <= boardSize; value++) {
+            boolean fits;
+            switch (op) {
+                case '+':
+                    fits = value + (size - 1) <= total && value + (long) (size - 1) * boardSize >= total;
+                    break;
+                case '*':
+                    fits = total % value == 0;
+                    break;
+                case '#':
+                    fits = value == total;
+                    break;
+                default:
+                    fits = true;
+            }
+            if (fits)
+                mask |= 1 << value;
+        }
+        return mask;
+    }
+
+    /**
+     * getKey() - cache key of cage: op, total, boardSize, and positions relative to the cage's top-left corner
+     * (same shape anywhere on the board gives the same key)
+     */
+    private static String getKey(char op, int total, int boardSize, int[] xs, int[] ys) {
+        // find top-left corner of cage
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+        }
+        StringBuilder key = new StringBuilder().append(op).append(total).append(':').append(boardSize);
+        for (int i = 0; i < xs.length; i++)
+            key.append(':').append(xs[i] - minX).append(',').append(ys[i] - minY);
+        return key.toString();
+    }
+
+    /**
+     * enumerate() - DFS fills each position of tuple with values 1 - boardSize, adds tuples that reach total
+     * @param pos position in tuple being filled
+     * @param tuples list valid tuples are added to
+     * @param nodes partial tuples tried so far (nodes[0])
+     * @return false if enumeration stopped at MAX_TUPLES or MAX_ENUMERATE_NODES (tuples is incomplete)
+     */
+    private static boolean enumerate(char op, int total, int boardSize, int[] xs, int[] ys,
+                                     int[] tuple, int pos, ArrayList<int[]> tuples, long[] nodes) {
+        // base case: every position filled, keep tuple if it reaches total
+        if (pos == tuple.length) {
+            if (reachesTotal(op, total, tuple))
+                tuples.add(tuple.clone());
+            return tuples.size() <= MAX_TUPLES;
+        }
+        if (++nodes[0] > MAX_ENUMERATE_NODES)
+            return false;
+
+        for (int value = 1; value <= boardSize; value++) {
+            // skip value if an earlier position in same row or col already holds it
+            boolean conflict = false;
+            for (int i = 0; i < pos && !conflict; i++)
+                conflict = tuple[i] == value && (xs[i] == xs[pos] || ys[i] == ys[pos]);
+            if (conflict)
+                continue;
+
+            tuple[pos] = value;
+            // '+' and '*' totals only grow, stop once a partial tuple can't reach total
+            if (canReachTotal(op, total, tuple, pos + 1)
+                    && !enumerate(op, total, boardSize, xs, ys, tuple, pos + 1, tuples, nodes))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * canReachTotal() - checks if the first filled positions of tuple can still be completed to reach total
+     * @param filled number of filled positions
+     */
+    private static boolean canReachTotal(char op, int total, int[] tuple, int filled) {
+        if (op == '+') {
+            int sum = 0;
+            for (int i = 0; i < filled; i++)
+                sum += tuple[i];
+            // each remaining position adds at least 1
+            return sum + (tuple.length - filled) <= total;
+        }
+        else if (op == '*') {
+            long product = 1;
+            for (int i = 0; i < filled; i++)
+                product *= tuple[i];
+            // product so far must divide total
+            return total % product == 0;
+        }
+        // '-', '/' and '#' can't be decided until tuple is full
+        return true;
+    }
+
+    /**
+     * reachesTotal() - checks if a full tuple gives total under op (row/col repeats are not checked)
+     */
+    static boolean reachesTotal(char op, int total, int[] tuple) {
+        long sum = 0, product = 1;
+        int max = 0;
+        for (int value : tuple) {
+            sum += value;
+            product *= value;
+            max = Math.max(max, value);
+        }
+        switch (op) {
+            case '+':
+                return sum == total;
+            case '*':
+                return product == total;
+            // max minus every other value
+            case '-':
+                return max - (sum - max) == total;
+            // max divided by every other value (must divide evenly)
+            case '/':
+                return (long) max * max == (long) total * product;
+            // free space: single value equal to total
+            default:
+                return tuple.length == 1 && tuple[0] == total;
+        }
+    }
+}
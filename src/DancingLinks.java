@@ -0,0 +1,235 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * DancingLinks Object - solves KenKen board as an exact cover problem with Knuth's Algorithm X / Dancing Links.
+ * Items (each must be covered exactly once):
+ *  - cage c        (one tuple is chosen per cage)
+ *  - cell (x, y)   (every cell gets one value)
+ *  - row x has v, col y has v  (Latin square rules)
+ * Options: one per valid cage tuple (CageDomain), covering its cage, its cells, and the row-value and col-value
+ * items of every value it places.
+ * Cages whose CageDomain lists no tuples (too many) can't be options, so such puzzles don't fit (see fits()).
+ * Links live in flat int arrays (no node objects). Search always covers the item with the fewest options left,
+ * which handles the Latin square structure far better than filling cells in board order.
+ */
+
+class DancingLinks {
+    private final int boardSize;
+    private final int cageCount;
+    private final int[][] cageCells;    // cells of each cage (same order as CageDomain tuples)
+    private final int[][][] cageTuples; // valid tuples of each cage
+
+    // node 0 is the root header, nodes 1 - itemCount are item headers, option nodes follow
+    private final int[] left, right, up, down;
+    private final int[] item;           // item header of each node
+    private final int[] size;           // number of options still covering each item (header nodes only)
+    private final int[] optionCage;     // cage of each node's option
+    private final int[] optionTuple;    // tuple index (in its cage's CageDomain) of each node's option
+
+    private final int[] chosen;         // node of chosen option at each depth (one per cage)
+    private long nodes;                 // search tree nodes visited
+
+    // set when search should stop (solve was cancelled)
+    private final AtomicBoolean cancelled;
+
+    /**
+     * DancingLinks constructor - never cancelled
+     * @param puzzle Puzzle to solve
+     */
+    DancingLinks(Puzzle puzzle) {
+        this(puzzle, new AtomicBoolean());
+    }
+
+    /**
+     * DancingLinks constructor - builds the exact cover matrix of puzzle
+     * @param puzzle Puzzle to solve
+     * @param cancelled search stops (solve() returns null) once this is set
+     * @throws IllegalArgumentException if puzzle doesn't fit (see fits())
+     */
+    DancingLinks(Puzzle puzzle, AtomicBoolean cancelled) {
+        if (!fits(puzzle))
+            throw new IllegalArgumentException("Cage with too many tuples for exact cover");
+        this.cancelled = cancelled;
+        this.boardSize = puzzle.boardSize;
+        this.cageCount = puzzle.cages.length;
+        int cellCount = boardSize * boardSize;
+        this.cageCells = new int[cageCount][];
+        this.cageTuples = new int[cageCount][][];
+        // items: cages, then cells, then row-values, then col-values
+        int itemCount = cageCount + 3 * cellCount;
+
+        int nodeCount = itemCount + 1;
+        for (int c = 0; c < cageCount; c++) {
+            cageCells[c] = puzzle.cages[c].cells;
+            cageTuples[c] = puzzle.cages[c].domain.tuples;
+            nodeCount += cageTuples[c].length * (1 + 3 * cageCells[c].length);
+        }
+        left = new int[nodeCount];
+        right = new int[nodeCount];
+        up = new int[nodeCount];
+        down = new int[nodeCount];
+        item = new int[nodeCount];
+        size = new int[itemCount + 1];
+        optionCage = new int[nodeCount];
+        optionTuple = new int[nodeCount];
+        chosen = new int[cageCount];
+
+        // headers: circular list through root, each item's column starts empty
+        for (int i = 0; i <= itemCount; i++) {
+            left[i] = i == 0 ? itemCount : i - 1;
+            right[i] = i == itemCount ? 0 : i + 1;
+            up[i] = i;
+            down[i] = i;
+            item[i] = i;
+        }
+
+        // one option (row of nodes) per cage tuple
+        int next = itemCount + 1;
+        for (int c = 0; c < cageCount; c++) {
+            int[][] tuples = cageTuples[c];
+            for (int t = 0; t < tuples.length; t++) {
+                int first = next;
+                next = addNode(next, first, 1 + c, c, t);
+                for (int i = 0; i < cageCells[c].length; i++) {
+                    int cell = cageCells[c][i];
+                    int value = tuples[t][i] - 1;
+                    next = addNode(next, first, 1 + cageCount + cell, c, t);
+                    next = addNode(next, first, 1 + cageCount + cellCount + (cell / boardSize) * boardSize + value, c, t);
+                    next = addNode(next, first, 1 + cageCount + 2 * cellCount + (cell % boardSize) * boardSize + value, c, t);
+                }
+            }
+        }
+    }
+
+    /**
+     * fits() - true if every cage of puzzle lists its tuples (each tuple becomes an option)
+     */
+    static boolean fits(Puzzle puzzle) {
+        for (Cage cage : puzzle.cages) {
+            if (!cage.domain.isListed())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * addNode() - appends node to the bottom of header's column and to the end of the option starting at first
+     * @return index of the next free node
+     */
+    private int addNode(int node, int first, int header, int cage, int tuple) {
+        item[node] = header;
+        optionCage[node] = cage;
+        optionTuple[node] = tuple;
+        // column: insert above header (bottom of column)
+        up[node] = up[header];
+        down[node] = header;
+        down[up[header]] = node;
+        up[header] = node;
+        size[header]++;
+        // option: circular list, insert before first
+        if (node == first) {
+            left[node] = node;
+            right[node] = node;
+        } else {
+            left[node] = left[first];
+            right[node] = first;
+            right[left[first]] = node;
+            left[first] = node;
+        }
+        return node + 1;
+    }
+
+    /**
+     * solve() - searches for an exact cover
+     * @return solved board values (cell id -> value), or null if the board has no solution (or solve was cancelled)
+     */
+    int[] solve() {
+        if (!search(0))
+            return null;
+        // each chosen option is one cage tuple, copy its values onto the board
+        int[] board = new int[boardSize * boardSize];
+        for (int depth = 0; depth < cageCount; depth++) {
+            int c = optionCage[chosen[depth]];
+            int[] tuple = cageTuples[c][optionTuple[chosen[depth]]];
+            for (int i = 0; i < cageCells[c].length; i++)
+                board[cageCells[c][i]] = tuple[i];
+        }
+        return board;
+    }
+
+    /**
+     * getNodes() - number of search tree nodes visited by solve()
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * search() - Algorithm X: covers item with fewest options, tries each of its options, recurses
+     * @param depth number of options chosen so far
+     * @return true if every item is covered (chosen[0 - depth) holds the solution)
+     */
+    private boolean search(int depth) {
+        // base case: no item left to cover
+        if (right[0] == 0)
+            return true;
+        // cancelled: unwind without a solution
+        if (cancelled.get())
+            return false;
+        nodes++;
+
+        // item with fewest options left (MRV), dead end if it has none
+        int best = right[0];
+        for (int i = right[best]; i != 0 && size[best] > 1; i = right[i]) {
+            if (size[i] < size[best])
+                best = i;
+        }
+        if (size[best] == 0)
+            return false;
+
+        cover(best);
+        for (int row = down[best]; row != best; row = down[row]) {
+            chosen[depth] = row;
+            // cover every other item of this option
+            for (int node = right[row]; node != row; node = right[node])
+                cover(item[node]);
+            if (search(depth + 1))
+                return true;
+            // uncover in reverse order
+            for (int node = left[row]; node != row; node = left[node])
+                uncover(item[node]);
+        }
+        uncover(best);
+        return false;
+    }
+
+    /**
+     * cover() - removes item from the header list and every option covering it from the other items' columns
+     */
+    private void cover(int header) {
+        right[left[header]] = right[header];
+        left[right[header]] = left[header];
+        for (int row = down[header]; row != header; row = down[row]) {
+            for (int node = right[row]; node != row; node = right[node]) {
+                down[up[node]] = down[node];
+                up[down[node]] = up[node];
+                size[item[node]]--;
+            }
+        }
+    }
+
+    /**
+     * uncover() - undoes cover(header) (links are restored in exact reverse order)
+     */
+    private void uncover(int header) {
+        for (int row = up[header]; row != header; row = up[row]) {
+            for (int node = left[row]; node != row; node = left[node]) {
+                size[item[node]]++;
+                down[up[node]] = node;
+                up[down[node]] = node;
+            }
+        }
+        right[left[header]] = header;
+        left[right[header]] = header;
+    }
+}
@@ -0,0 +1,344 @@
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator Object - generates random puzzles with exactly one solution.
+ * Fills a random Latin square, cuts it into cages of 1 - 4 cells by random walks, gives each cage an op and the
+ * total of its values, then adjusts cages until the puzzle is unique:
+ *  - search (Propagator.solveExcept()) for a second solution, stop if there is none
+ *  - pick a cell where it differs from the Latin square, and change that cell's cage so the second solution
+ *    breaks it: first by switching to an op whose total the second solution misses, else by splitting the cage
+ *  - the second solution is kept and checked against the changed cages first, so the search only runs again
+ *    once the old counterexample is ruled out
+ * One Propagator serves every adjustment of a Latin square: setCage() only rebuilds the domains of the switched
+ * or split cage, the other cages keep their Cage objects and tuples, and each search rewinds the same trail.
+ *
+ * Usage: java KenKen generate [-size N] [-count N] [-seed S] [out]  (out .kkb = binary, else text; stdout if none)
+ */
+
+class Generator {
+    // largest product given to a '*' cage with more than 2 cells (bigger cages get '+')
+    private static final int MAX_PRODUCT = 1000;
+
+    private final int size;
+    private final Random rand;
+
+    /**
+     * Generator constructor
+     * @param size board size of generated puzzles
+     * @param seed random seed (same seed gives same puzzles)
+     */
+    Generator(int size, long seed) {
+        this.size = size;
+        this.rand = new Random(seed);
+    }
+
+    /**
+     * main() - parses command line args, writes count generated puzzles
+     * @param args [-size N] [-count N] [-seed S] [out]
+     */
+    static void main(String[] args) throws IOException {
+        int size = 6;
+        int count = 1;
+        long seed = System.nanoTime();
+        String out = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-size") && i + 1 < args.length)
+                size = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-count") && i + 1 < args.length)
+                count = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-seed") && i + 1 < args.length)
+                seed = Long.parseLong(args[++i]);
+            else
+                out = args[i];
+        }
+        if (size < 1 || size > PuzzleReader.MAX_BOARD_SIZE) {
+            System.err.println("Board size must be 1 - " + PuzzleReader.MAX_BOARD_SIZE);
+            return;
+        }
+
+        Generator generator = new Generator(size, seed);
+        long start = System.nanoTime();
+        if (out != null && out.endsWith(".kkb")) {
+            try (PuzzleWriter writer = new PuzzleWriter(out)) {
+                for (int i = 0; i < count; i++)
+                    writer.write(generator.generate());
+            }
+        } else {
+            PrintStream text = out == null ? System.out
+                    : new PrintStream(new BufferedOutputStream(new FileOutputStream(out), 1 << 16));
+            for (int i = 0; i < count; i++)
+                PuzzleWriter.writeText(generator.generate(), text);
+            if (text == System.out)
+                text.flush();
+            else
+                text.close();
+        }
+        System.err.printf("Generated %d %dx%d puzzles in %.1f s%n", count, size, size, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * generate() - next random puzzle with exactly one solution
+     * @return unique Puzzle
+     */
+    Puzzle generate() {
+        while (true) {
+            int[] solution = latinSquare();
+            List<Cage> cages = partition(solution);
+            Puzzle first = new Puzzle(size, cages.toArray(new Cage[0]));
+            // search state of the current cages, adjust() swaps the changed ones in
+            Propagator propagator = new Propagator(first);
+            int[] cageOfCell = first.cageOfCell;
+            int[] other = null;     // a second solution of the current cages (null once ruled out)
+            // adjustments shrink cages, so give up (and start over) if one puzzle takes too many
+            for (int round = 0; round < 4 * size * size; round++) {
+                if (other == null || !satisfies(cages, other)) {
+                    other = propagator.solveExcept(solution);
+                    if (other == null)
+                        return new Puzzle(size, cages.toArray(new Cage[0]));
+                }
+                adjust(cages, cageOfCell, propagator, solution, other);
+            }
+        }
+    }
+
+    /**
+     * latinSquare() - random Latin square (cell id -> value), filled cell by cell with values in random order,
+     * backtracking when a cell has no value left
+     */
+    private int[] latinSquare() {
+        int[] board = new int[size * size];
+        int[] rowMask = new int[size], colMask = new int[size];
+        fill(board, rowMask, colMask, 0);
+        return board;
+    }
+
+    /**
+     * fill() - fills cells from cell on, each with a random value not yet in its row/col
+     * @return false if some cell has no value left (caller tries its next value)
+     */
+    private boolean fill(int[] board, int[] rowMask, int[] colMask, int cell) {
+        if (cell == board.length)
+            return true;
+        int x = cell / size, y = cell % size;
+        for (int value : shuffled(size, rand)) {
+            int bit = 1 << (value + 1);
+            if (((rowMask[x] | colMask[y]) & bit) != 0)
+                continue;
+            board[cell] = value + 1;
+            rowMask[x] |= bit;
+            colMask[y] |= bit;
+            if (fill(board, rowMask, colMask, cell + 1))
+                return true;
+            rowMask[x] &= ~bit;
+            colMask[y] &= ~bit;
+        }
+        return false;
+    }
+
+    /**
+     * partition() - cuts board into cages of 1 - 4 cells grown by random walk over cells not yet in a cage
+     */
+    private List<Cage> partition(int[] board) {
+        int[] cageOf = new int[size * size];
+        Arrays.fill(cageOf, -1);
+        List<Cage> cages = new ArrayList<>();
+        for (int start : shuffled(size * size, rand)) {
+            if (cageOf[start] != -1)
+                continue;
+            int[] cells = new int[1 + rand.nextInt(4)];
+            int count = 0;
+            int cell = start;
+            while (cell != -1 && count < cells.length) {
+                cells[count++] = cell;
+                cageOf[cell] = cages.size();
+                cell = freeNeighbor(cell, cageOf, -1);
+            }
+            cages.add(cageFor(Arrays.copyOf(cells, count), board));
+        }
+        return cages;
+    }
+
+    /**
+     * adjust() - changes the cage of a cell where other differs from solution, so other no longer fits it:
+     * switches to an op other misses if the cage has one, else splits the cage in two (or more if the
+     * rest falls apart into pieces)
+     * @param cages current cages, changed in place
+     * @param cageOfCell index in cages of each cell's cage, changed in place
+     * @param propagator search state of cages, gets the changed cages
+     * @param solution Latin square the puzzle was cut from
+     * @param other a different solution of the current cages
+     */
+    private void adjust(List<Cage> cages, int[] cageOfCell, Propagator propagator, int[] solution, int[] other) {
+        // random cell where the solutions differ (never a single-cell cage: it fixes its value)
+        int diffCount = 0;
+        for (int cell = 0; cell < solution.length; cell++)
+            diffCount += solution[cell] != other[cell] ? 1 : 0;
+        int pick = rand.nextInt(diffCount);
+        int diffCell = -1;
+        for (int cell = 0; pick >= 0; cell++) {
+            if (solution[cell] != other[cell] && pick-- == 0)
+                diffCell = cell;
+        }
+        int c = cageOfCell[diffCell];
+        Cage cage = cages.get(c);
+
+        // another op whose total other misses
+        for (char op : shuffledOps()) {
+            int total = cageTotal(op, cage.cells, solution);
+            if (op != cage.op && total > 0 && cageTotal(op, cage.cells, other) != total) {
+                setCage(cages, cageOfCell, propagator, c, new Cage(total, op, cage.cells, Puzzle.getRandColor(), size));
+                return;
+            }
+        }
+
+        // split: random walk from diffCell over up to half the cage's cells, rest cut into connected pieces
+        int[] cageOf = new int[size * size];
+        Arrays.fill(cageOf, -2);
+        for (int cell : cage.cells)
+            cageOf[cell] = -1;
+        int[] part = new int[Math.max(1, cage.cells.length / 2)];
+        int count = 0;
+        for (int cell = diffCell; cell != -1 && count < part.length; cell = freeNeighbor(cell, cageOf, -1)) {
+            part[count++] = cell;
+            cageOf[cell] = 0;
+        }
+        setCage(cages, cageOfCell, propagator, c, cageFor(Arrays.copyOf(part, count), solution));
+        for (int start : cage.cells) {
+            if (cageOf[start] != -1)
+                continue;
+            // flood fill one connected piece of the rest
+            int[] piece = new int[cage.cells.length];
+            int pieceSize = 0;
+            piece[pieceSize++] = start;
+            cageOf[start] = 0;
+            for (int i = 0; i < pieceSize; i++) {
+                for (int cell; (cell = freeNeighbor(piece[i], cageOf, -1)) != -1; ) {
+                    piece[pieceSize++] = cell;
+                    cageOf[cell] = 0;
+                }
+            }
+            setCage(cages, cageOfCell, propagator, cages.size(), cageFor(Arrays.copyOf(piece, pieceSize), solution));
+        }
+    }
+
+    /**
+     * setCage() - replaces cage c (or adds a cage, if c is cages.size()) in cages, cageOfCell and propagator
+     */
+    private static void setCage(List<Cage> cages, int[] cageOfCell, Propagator propagator, int c, Cage cage) {
+        if (c == cages.size())
+            cages.add(cage);
+        else
+            cages.set(c, cage);
+        for (int cell : cage.cells)
+            cageOfCell[cell] = c;
+        propagator.setCage(c, cage);
+    }
+
+    /**
+     * cageFor() - picks an op for cells ('-' and '/' only for 2 cells, '*' only while product stays small)
+     * and makes the Cage with that op's total of the board values
+     */
+    private Cage cageFor(int[] cells, int[] board) {
+        if (cells.length == 1)
+            return new Cage(board[cells[0]], '#', cells, Puzzle.getRandColor(), size);
+        for (char op : shuffledOps()) {
+            int total = cageTotal(op, cells, board);
+            if (total > 0)
+                return new Cage(total, op, cells, Puzzle.getRandColor(), size);
+        }
+        return new Cage(cageTotal('+', cells, board), '+', cells, Puzzle.getRandColor(), size);
+    }
+
+    /**
+     * cageTotal() - total of board values in cells under op (same rules as CageDomain)
+     * @return total, or 0 if op doesn't fit cells (e.g. '/' that doesn't divide, '-'/'/' on more than 2 cells,
+     * '*' over MAX_PRODUCT, '#' on more than 1 cell)
+     */
+    static int cageTotal(char op, int[] cells, int[] board) {
+        int sum = 0, max = 0;
+        long product = 1;
+        for (int cell : cells) {
+            sum += board[cell];
+            product *= board[cell];
+            max = Math.max(max, board[cell]);
+        }
+        switch (op) {
+            case '+':
+                return sum;
+            case '*':
+                return cells.length > 2 && product > MAX_PRODUCT ? 0 : (int) product;
+            case '-':
+                return cells.length == 2 && max - (sum - max) > 0 ? max - (sum - max) : 0;
+            case '/':
+                return cells.length == 2 && (max * max) % product == 0 ? (int) (max * max / product) : 0;
+            case '#':
+                return cells.length == 1 ? sum : 0;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * satisfies() - true if board meets every cage's op/total
+     */
+    private static boolean satisfies(List<Cage> cages, int[] board) {
+        for (Cage cage : cages) {
+            if (cageTotal(cage.op, cage.cells, board) != cage.total)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * freeNeighbor() - random orthogonal neighbor of cell with cageOf == free, or -1 if there is none
+     */
+    private int freeNeighbor(int cell, int[] cageOf, int free) {
+        int x = cell / size, y = cell % size;
+        int[] neighbors = {x > 0 ? cell - size : -1, x < size - 1 ? cell + size : -1,
+                y > 0 ? cell - 1 : -1, y < size - 1 ? cell + 1 : -1};
+        int offset = rand.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            int n = neighbors[(i + offset) % 4];
+            if (n != -1 && cageOf[n] == free)
+                return n;
+        }
+        return -1;
+    }
+
+    /**
+     * shuffledOps() - '+', '-', '*', '/' in random order
+     */
+    private char[] shuffledOps() {
+        char[] ops = {'+', '-', '*', '/'};
+        for (int i = ops.length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            char tmp = ops[i];
+            ops[i] = ops[j];
+            ops[j] = tmp;
+        }
+        return ops;
+    }
+
+    /**
+     * shuffled() - random permutation of 0 - (count - 1)
+     */
+    private static int[] shuffled(int count, Random rand) {
+        int[] perm = new int[count];
+        for (int i = 0; i < count; i++)
+            perm[i] = i;
+        for (int i = count - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int tmp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = tmp;
+        }
+        return perm;
+    }
+}
@@ -0,0 +1,133 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * IterativeSolver Object - the DFS of SolveContext.solveRec() (cells in row-major order, values lowest first)
+ * without recursion: the search stack is one int per cell (values not yet tried there), allocated up front, so
+ * search depth never touches the thread stack (no StackOverflowError on 16x16+ boards) and search allocates nothing.
+ * Search can be paused (node budget, or cancelled flag) and later resumed exactly where it stopped, since the
+ * whole search state lives in this object.
+ */
+
+class IterativeSolver {
+    /**
+     * Status - where a call to resume() stopped
+     */
+    enum Status {
+        SOLVED,         // board holds a solution
+        NO_SOLUTION,    // whole search space exhausted
+        PAUSED,         // node budget used up, resume() continues the search
+        CANCELLED       // cancelled flag was set, resume() continues the search once it is cleared
+    }
+
+    private final SolveContext ctx;     // board, row/col masks and cage running totals
+    private final int[] untried;        // values not yet tried at each cell (bitmask), one stack frame per cell
+    private int cell;                   // current depth (cell id), board.length once solved, -1 once exhausted
+    private boolean entering = true;    // cell not yet visited (its untried values aren't computed yet)
+    private long nodes;                 // search tree nodes visited
+    private Status status = Status.PAUSED;
+
+    // set when search should stop (solve was cancelled)
+    private final AtomicBoolean cancelled;
+
+    /**
+     * IterativeSolver constructor - search state for puzzle, positioned at cell 0 of the empty board
+     * @param puzzle Puzzle to solve
+     * @param cancelled resume() stops (returns CANCELLED) once this is set
+     */
+    IterativeSolver(Puzzle puzzle, AtomicBoolean cancelled) {
+        this.ctx = new SolveContext(puzzle, cancelled);
+        this.untried = new int[ctx.board.length];
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * IterativeSolver constructor - never cancelled
+     * @param puzzle Puzzle to solve
+     */
+    IterativeSolver(Puzzle puzzle) {
+        this(puzzle, new AtomicBoolean());
+    }
+
+    /**
+     * solve() - runs (or finishes) the search with no node budget
+     * @return solved board values (cell id -> value), or null if the board has no solution (or solve was cancelled)
+     */
+    int[] solve() {
+        return resume(Long.MAX_VALUE) == Status.SOLVED ? ctx.board : null;
+    }
+
+    /**
+     * resume() - continues the search from where the last call stopped (from cell 0 on the first call)
+     * @param maxNodes number of search tree nodes to visit before pausing
+     * @return SOLVED, NO_SOLUTION, or PAUSED/CANCELLED if it can be resumed
+     */
+    Status resume(long maxNodes) {
+        if (status == Status.SOLVED || status == Status.NO_SOLUTION)
+            return status;
+        long budget = maxNodes;
+        while (true) {
+            // base case: every cell of board is filled with working solutions
+            if (cell == untried.length)
+                return status = Status.SOLVED;
+            // backtracked past cell 0: no board solution
+            if (cell < 0)
+                return status = Status.NO_SOLUTION;
+            // cancelled: stop between nodes (state stays consistent)
+            if (cancelled.get())
+                return status = Status.CANCELLED;
+
+            // new node: push frame with the values that can be placed in cell
+            if (entering) {
+                if (budget-- == 0)
+                    return status = Status.PAUSED;
+                nodes++;
+                untried[cell] = ctx.candidates(cell);
+                entering = false;
+            }
+
+            // next untried value (lowest set bit first) solvable given cage constraints
+            int bits = untried[cell];
+            int value = 0;
+            while (bits != 0 && value == 0) {
+                int i = Integer.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (ctx.solvable(cell, i))
+                    value = i;
+            }
+            untried[cell] = bits;
+
+            if (value != 0) {
+                // add value to board at cell, step down to next cell
+                ctx.place(cell, value);
+                cell++;
+                entering = true;
+            } else {
+                // no value left: pop frame, free the value placed in the cell above (its next value is tried)
+                cell--;
+                if (cell >= 0)
+                    ctx.remove(cell, ctx.board[cell]);
+            }
+        }
+    }
+
+    /**
+     * getBoard() - board of the search (cell id -> value, solved once resume() returned SOLVED)
+     */
+    int[] getBoard() {
+        return ctx.board;
+    }
+
+    /**
+     * getStatus() - where the last resume() stopped (PAUSED before the first call)
+     */
+    Status getStatus() {
+        return status;
+    }
+
+    /**
+     * getNodes() - number of search tree nodes visited so far
+     */
+    long getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ParallelSolver Object - splits the DFS of SolveContext.solveRec() across a ForkJoinPool.
+ * The first splitDepth cells are branched into subtasks (each with its own SolveContext copy), deeper cells are
+ * searched sequentially by the subtask. Idle workers steal pending subtasks, and once any subtask solves the board
+ * a found flag shared by the subtasks stops every other one. The caller's cancelled flag is only read.
+ * Search nodes are the subtasks' branching nodes plus every subtask's solveRec() calls.
+ */
+
+class ParallelSolver implements Solver {
+    // default number of cells branched into subtasks before searching sequentially
+    static final int DEFAULT_SPLIT_DEPTH = 4;
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    /**
+     * ParallelSolver constructor
+     * @param pool ForkJoinPool subtasks run on
+     * @param splitDepth number of cells (from cell 0) branched into subtasks
+     */
+    ParallelSolver(ForkJoinPool pool, int splitDepth) {
+        this.pool = pool;
+        this.splitDepth = splitDepth;
+    }
+
+    /**
+     * ParallelSolver constructor - common pool, DEFAULT_SPLIT_DEPTH
+     */
+    ParallelSolver() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SPLIT_DEPTH);
+    }
+
+    /**
+     * solve() - solves puzzle in parallel
+     * @param puzzle Puzzle to solve
+     * @param cancelled stops every subtask once set (never written by the solve)
+     * @return solved board (cell id -> value), or null if the board has no solution (or solve was cancelled)
+     */
+    @Override
+    public int[] solve(Puzzle puzzle, AtomicBoolean cancelled) {
+        return solve(puzzle, cancelled, new long[1]);
+    }
+
+    /**
+     * solve() - solves puzzle in parallel, counting the search nodes of every subtask
+     * @param puzzle Puzzle to solve
+     * @param cancelled stops every subtask once set (never written by the solve)
+     * @param nodes nodes[0] set to search tree nodes visited by all subtasks together
+     * @return solved board (cell id -> value), or null if the board has no solution (or solve was cancelled)
+     */
+    int[] solve(Puzzle puzzle, AtomicBoolean cancelled, long[] nodes) {
+        AtomicReference<int[]> solution = new AtomicReference<>();
+        // set by the subtask that solves the board, stops the others
+        AtomicBoolean found = new AtomicBoolean();
+        LongAdder total = new LongAdder();
+        SolveContext root = new SolveContext(puzzle, cancelled, found);
+        if (SearchStats.ENABLED)
+            root.stats.start();
+        pool.invoke(new SolveTask(root, 0, solution, found, total, root.stats));
+        if (SearchStats.ENABLED)
+            root.stats.finish(solution.get() != null);
+        nodes[0] = total.sum();
+        return solution.get();
+    }
+
+    /**
+     * SolveTask Object - searches the subtree of boards that extend ctx from cell onward
+     */
+    private class SolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // tasks are never serialized (ForkJoinTask is Serializable), so the non-serializable state is transient
+        private final transient SolveContext ctx;   // owned by this task only
+        private final int cell;
+        private final AtomicReference<int[]> solution;
+        private final AtomicBoolean found;
+        private final LongAdder nodes;              // nodes of the whole solve, subtasks add their counts
+        private final transient SearchStats total;  // stats of the whole solve, subtasks merge their counts in
+
+        private SolveTask(SolveContext ctx, int cell, AtomicReference<int[]> solution, AtomicBoolean found,
+                          LongAdder nodes, SearchStats total) {
+            this.ctx = ctx;
+            this.cell = cell;
+            this.solution = solution;
+            this.found = found;
+            this.nodes = nodes;
+            this.total = total;
+        }
+
+        @Override
+        protected void compute() {
+            // a sibling already solved the board, or solve was cancelled
+            if (ctx.isStopped())
+                return;
+
+            // deep enough (or board full): search rest of subtree sequentially
+            if (cell >= splitDepth || cell == ctx.board.length) {
+                // solveRec returns false early once found (or cancelled) is set
+                if (ctx.solveRec(cell) && found.compareAndSet(false, true))
+                    solution.set(ctx.board.clone());
+                nodes.add(ctx.getNodes());
+                if (SearchStats.ENABLED && ctx.stats != total)
+                    total.merge(ctx.stats);
+                return;
+            }
+
+            // one subtask per value that can be placed in cell
+            nodes.increment();
+            if (SearchStats.ENABLED) {
+                // total is shared with subtasks merging into it
+                synchronized (total) {
+                    total.node(cell);
+                }
+            }
+            ArrayList<SolveTask> subtasks = new ArrayList<>();
+            for (int bits = ctx.candidates(cell); bits != 0; bits &= bits - 1) {
+                int value = Integer.numberOfTrailingZeros(bits);
+                if (ctx.solvable(cell, value)) {
+                    SolveContext child = new SolveContext(ctx);
+                    child.place(cell, value);
+                    subtasks.add(new SolveTask(child, cell + 1, solution, found, nodes, total));
+                }
+            }
+            // fork all, idle workers steal the ones this thread doesn't get to
+            invokeAll(subtasks);
+        }
+    }
+}
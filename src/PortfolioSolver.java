@@ -0,0 +1,262 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PortfolioSolver Object - races several search configurations on separate threads and returns the first answer,
+ * so a puzzle that is pathological for one ordering is usually easy for another (cuts the slow tail of solve times).
+ * Configurations, in the order they are given threads:
+ *  - "propagator" MRV, ties to lowest cell, values lowest first
+ *  - "dlx"        exact cover, item with fewest options first
+ *  - "random-1"   propagator with random MRV ties and value order, restarted with a new order after a node
+ *                 limit that doubles every restart (so it stays complete)
+ *  - "dfs"        solveRec(), cells in row-major order
+ *  - "random-2", "random-3", ... more random restart seeds for the remaining threads
+ * The first configuration to solve the board (or to finish its whole search without a solution) wins, and
+ * a stop flag shared by the configurations stops every other one at its next search node. The race reports the
+ * winner's search nodes (a random configuration's over all its restarts). A configuration that throws drops out
+ * of the race, which only fails if every configuration does.
+ *
+ * At most maxRaces races run at once, each on width threads of its own (the pool has width * maxRaces threads),
+ * so concurrent callers never queue their configurations behind another race's. A race keeps its slot until
+ * every one of its configurations has stopped, not just until it has a winner, so its losers never hold threads
+ * the next race needs. Further races wait for a slot (still cancellable while they wait).
+ */
+
+class PortfolioSolver implements Solver {
+    // how often race() checks the caller's cancelled flag while waiting
+    private static final long CANCEL_POLL_MILLIS = 1;
+    // nodes before the first restart of a random configuration
+    private static final long FIRST_RESTART_NODES = 256;
+    // races of the shared portfolio running at once (each on one thread per core)
+    private static final int DEFAULT_MAX_RACES = 2;
+    // shared portfolio for Solver.get("portfolio"), one configuration per core
+    private static PortfolioSolver defaultPortfolio;
+
+    private final ExecutorService pool;     // one thread per configuration of each running race
+    private final Semaphore raceSlots;      // races running at once (released once all its configurations stopped)
+    private final List<String> names;       // configurations raced, in order
+    private final Map<String, Config> configs = new HashMap<>();
+
+    /**
+     * PortfolioSolver constructor - one race at a time
+     * @param width number of configurations raced (each gets its own thread)
+     */
+    PortfolioSolver(int width) {
+        this(width, 1);
+    }
+
+    /**
+     * PortfolioSolver constructor
+     * @param width number of configurations raced (each gets its own thread)
+     * @param maxRaces most races running at once, more wait for one to finish
+     */
+    PortfolioSolver(int width, int maxRaces) {
+        this.raceSlots = new Semaphore(maxRaces);
+        this.pool = Executors.newFixedThreadPool(width * maxRaces, r -> {
+            Thread thread = new Thread(r, "portfolio");
+            thread.setDaemon(true);
+            return thread;
+        });
+        configs.put("propagator", PortfolioSolver::solvePropagator);
+        configs.put("dlx", PortfolioSolver::solveDlx);
+        configs.put("dfs", PortfolioSolver::solveDfs);
+        this.names = new ArrayList<>(List.of("propagator", "dlx", "random-1", "dfs"));
+        for (int seed = 2; names.size() < width; seed++)
+            names.add("random-" + seed);
+        for (String name : names) {
+            if (name.startsWith("random-")) {
+                long seed = Long.parseLong(name.substring("random-".length()));
+                configs.put(name, (puzzle, cancelled, nodes) -> solveWithRestarts(puzzle, cancelled, seed, nodes));
+            }
+        }
+        // fewer threads than the base configurations: race only the first width
+        names.subList(Math.min(width, names.size()), names.size()).clear();
+    }
+
+    /**
+     * getDefault() - shared portfolio racing one configuration per core, at most DEFAULT_MAX_RACES races at once
+     * (threads are daemons, never shut down)
+     */
+    static synchronized PortfolioSolver getDefault() {
+        if (defaultPortfolio == null)
+            defaultPortfolio = new PortfolioSolver(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                    DEFAULT_MAX_RACES);
+        return defaultPortfolio;
+    }
+
+    /**
+     * solve() - races every configuration on puzzle
+     * @param puzzle Puzzle to solve
+     * @param cancelled race stops (returns null) once this is set
+     * @return solved board (cell id -> value), or null if no solution (or cancelled)
+     */
+    @Override
+    public int[] solve(Puzzle puzzle, AtomicBoolean cancelled) {
+        return race(puzzle, cancelled).board;
+    }
+
+    /**
+     * race() - waits for a race slot, races every configuration on puzzle, returns as soon as one has an answer
+     * (losers are stopped but not waited for, each unwinds at its next search node and the last one to stop
+     * frees the race slot)
+     * @param puzzle Puzzle to solve
+     * @param cancelled race stops (no winner) once this is set, checked every CANCEL_POLL_MILLIS
+     * @return Outcome of the race
+     * @throws IllegalStateException if every configuration threw (the first one's exception is the cause, the
+     *                               others' are suppressed)
+     */
+    Outcome race(Puzzle puzzle, AtomicBoolean cancelled) {
+        long start = System.nanoTime();
+        Outcome outcome = new Outcome(null, null, 0, 0);
+        try {
+            while (!raceSlots.tryAcquire(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (cancelled.get())
+                    return outcome;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return outcome;
+        }
+
+        // stops every configuration once the race is decided (caller's flag is left alone)
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger running = new AtomicInteger(names.size());
+        ExecutorCompletionService<Outcome> done = new ExecutorCompletionService<>(pool);
+        for (String name : names) {
+            Config config = configs.get(name);
+            done.submit(() -> {
+                try {
+                    long[] nodes = new long[1];
+                    int[] board = config.solve(puzzle, stop, nodes);
+                    return new Outcome(board, name, System.nanoTime() - start, nodes[0]);
+                } finally {
+                    // last configuration of the race to stop frees its slot
+                    if (running.decrementAndGet() == 0)
+                        raceSlots.release();
+                }
+            });
+        }
+
+        try {
+            // every configuration is complete, so the first to finish decides the race (solution or none),
+            // the failures of configurations that threw are kept until one does
+            IllegalStateException failures = null;
+            for (int pending = names.size(); outcome.winner == null && pending > 0; ) {
+                if (cancelled.get())
+                    return outcome;
+                Future<Outcome> racer = done.poll(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (racer == null)
+                    continue;
+                pending--;
+                try {
+                    outcome = racer.get();
+                } catch (ExecutionException e) {
+                    if (failures == null)
+                        failures = new IllegalStateException("every portfolio configuration failed", e.getCause());
+                    else
+                        failures.addSuppressed(e.getCause());
+                }
+            }
+            // every configuration failed
+            if (outcome.winner == null)
+                throw failures;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // stop the losers (not cancelled through their Future: each must run to free the race slot, and one
+            // that starts after this returns at its first search node)
+            stop.set(true);
+        }
+        return outcome;
+    }
+
+    /**
+     * solvePropagator() - "propagator" configuration
+     */
+    private static int[] solvePropagator(Puzzle puzzle, AtomicBoolean cancelled, long[] nodes) {
+        Propagator propagator = new Propagator(puzzle, cancelled);
+        int[] board = propagator.solve();
+        nodes[0] = propagator.getNodes();
+        return board;
+    }
+
+    /**
+     * solveDlx() - "dlx" configuration (propagator for puzzles it doesn't fit, as Solver.get("dlx") does)
+     */
+    private static int[] solveDlx(Puzzle puzzle, AtomicBoolean cancelled, long[] nodes) {
+        if (!DancingLinks.fits(puzzle))
+            return solvePropagator(puzzle, cancelled, nodes);
+        DancingLinks dlx = new DancingLinks(puzzle, cancelled);
+        int[] board = dlx.solve();
+        nodes[0] = dlx.getNodes();
+        return board;
+    }
+
+    /**
+     * solveDfs() - "dfs" configuration
+     */
+    private static int[] solveDfs(Puzzle puzzle, AtomicBoolean cancelled, long[] nodes) {
+        SolveContext ctx = new SolveContext(puzzle, cancelled);
+        boolean solved = ctx.solve();
+        nodes[0] = ctx.getNodes();
+        return solved ? ctx.board : null;
+    }
+
+    /**
+     * solveWithRestarts() - randomized propagator search, restarted with the next random order whenever it hits
+     * its node limit, limit doubling each time
+     * @param nodes nodes[0] set to nodes visited by every restart together
+     * @return solved board, or null if no solution (or cancelled)
+     */
+    private static int[] solveWithRestarts(Puzzle puzzle, AtomicBoolean cancelled, long seed, long[] nodes) {
+        Random random = new Random(seed);
+        for (long limit = FIRST_RESTART_NODES; ; limit = Math.min(limit * 2, Long.MAX_VALUE / 2)) {
+            Propagator propagator = new Propagator(puzzle, cancelled, random, limit);
+            int[] board = propagator.solve();
+            nodes[0] += propagator.getNodes();
+            if (board != null || !propagator.hitNodeLimit() || cancelled.get())
+                return board;
+        }
+    }
+
+    /**
+     * Config Interface - a raced configuration: a search that stops once cancelled is set, and counts its nodes
+     */
+    private interface Config {
+        /**
+         * solve() - solves puzzle
+         * @param nodes nodes[0] set to search tree nodes visited
+         * @return solved board, or null if no solution (or cancelled)
+         */
+        int[] solve(Puzzle puzzle, AtomicBoolean cancelled, long[] nodes);
+    }
+
+    /**
+     * Outcome Object - result of a race
+     */
+    static class Outcome {
+        final int[] board;      // solved board, null if no solution (or cancelled)
+        final String winner;    // configuration that decided the race, null if cancelled first
+        final long nanos;       // wall time until the race was decided
+        final long nodes;       // search tree nodes the winner visited
+
+        Outcome(int[] board, String winner, long nanos, long nodes) {
+            this.board = board;
+            this.winner = winner;
+            this.nanos = nanos;
+            this.nodes = nodes;
+        }
+    }
+}
@@ -0,0 +1,710 @@
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Propagator Object - solves KenKen board with constraint propagation + search.
+ * Each position (cell id = x * boardSize + y) keeps a bitmask of values it can still hold.
+ * After every assignment, values are removed from the domains of positions in the same row/col (naked singles),
+ * values that fit in only one position of a row/col are placed there (hidden singles) and each cage's domain
+ * is filtered to the values still appearing in a valid cage tuple, until nothing changes.
+ * Search branches on the position with the fewest remaining values (MRV), and undoes domain changes
+ * on backtrack from a trail instead of zeroing the board.
+ * Optionally MRV ties and value order are randomized and the search gives up after a node limit (randomized
+ * restarts, see PortfolioSolver).
+ * The same search also counts solutions (up to a limit, e.g. 2 to check a puzzle is unique), and solutions()
+ * enumerates every solution lazily as a Stream that can be split across threads.
+ * setCage() swaps cages in place, so a Generator re-checks each adjusted puzzle on the same domains and trail.
+ */
+
+class Propagator {
+    private final Puzzle puzzle;
+    private final int boardSize;
+    private final int cellCount;        // boardSize * boardSize
+    // cages, indexed like puzzle.cages until setCage() replaces or adds one (room for one cage per cell)
+    private final int[] cageOfCell;     // index of cage each cell belongs to
+    private final Cage[] cages;
+    private final int[][] cageCells;    // cells of each cage (same order as CageDomain tuples)
+    private final CageDomain[] cageDomains; // valid tuples of each cage
+    private int cageCount;
+
+    private final int[] domain;         // bitmask of values each cell can hold (bit v set if value v possible)
+
+    // trail of domain changes (cell, old mask), undone on backtrack
+    private final int[] trailCell;
+    private final int[] trailMask;
+    private int trailSize;
+
+    // queue of cells whose domain became a single value (value must be removed from row/col)
+    private final int[] singleQueue;
+    private int singleQueueSize;
+
+    // cages whose cells' domains changed since the cage was last filtered
+    private final boolean[] cageDirty;
+    private final int[] dirtyCages;
+    private int dirtyCageCount;
+
+    // per cage position support found while filtering a cage's tuples
+    private final int[] support;
+
+    private long nodes;     // number of search() calls (nodes of the search tree visited)
+
+    // search stops once solutions reaches solutionLimit (1 for solve())
+    private long solutionLimit = 1;
+    private long solutions;
+    // solution search skips (null: none), see solveExcept()
+    private int[] excluded;
+
+    // set when search should stop (deadline passed, or solve was cancelled)
+    private final AtomicBoolean cancelled;
+
+    // null: MRV ties go to the lowest cell, values tried lowest first; else both picked at random
+    private final Random random;
+    // search gives up once it has visited this many nodes
+    private final long nodeLimit;
+    private boolean nodeLimitHit;
+
+    // search counters (null unless SearchStats.ENABLED)
+    private final SearchStats stats;
+
+    /**
+     * Propagator constructor - initializes domains to the cage candidate masks, never cancelled
+     * @param puzzle Puzzle to solve
+     */
+    Propagator(Puzzle puzzle) {
+        this(puzzle, new AtomicBoolean());
+    }
+
+    /**
+     * Propagator constructor - initializes domains to the cage candidate masks
+     * @param puzzle Puzzle to solve
+     * @param cancelled search stops (solve() returns null) once this is set
+     */
+    Propagator(Puzzle puzzle, AtomicBoolean cancelled) {
+        this(puzzle, cancelled, null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Propagator constructor - initializes domains to the cage candidate masks
+     * @param puzzle Puzzle to solve
+     * @param cancelled search stops (solve() returns null) once this is set
+     * @param random breaks MRV ties and orders values at random, null for lowest cell / lowest value first
+     * @param nodeLimit search gives up (solve() returns null, hitNodeLimit() is true) after this many nodes
+     */
+    Propagator(Puzzle puzzle, AtomicBoolean cancelled, Random random, long nodeLimit) {
+        this.cancelled = cancelled;
+        this.random = random;
+        this.nodeLimit = nodeLimit;
+        this.puzzle = puzzle;
+        this.boardSize = puzzle.boardSize;
+        this.cellCount = boardSize * boardSize;
+        this.cageOfCell = puzzle.cageOfCell.clone();
+        this.cages = new Cage[cellCount];
+        this.cageCells = new int[cellCount][];
+        this.cageDomains = new CageDomain[cellCount];
+        this.cageCount = puzzle.cages.length;
+        for (int c = 0; c < cageCount; c++) {
+            cages[c] = puzzle.cages[c];
+            cageCells[c] = puzzle.cages[c].cells;
+            cageDomains[c] = puzzle.cages[c].domain;
+        }
+        // start each cell with the values its cage allows
+        this.domain = puzzle.candidateMask.clone();
+
+        // every trailed change removes at least one value, so boardSize entries per cell suffice
+        this.trailCell = new int[cellCount * boardSize];
+        this.trailMask = new int[cellCount * boardSize];
+        // a cell only becomes single once per search path
+        this.singleQueue = new int[cellCount];
+        this.cageDirty = new boolean[cellCount];
+        this.dirtyCages = new int[cellCount];
+        // a cage never has more cells than the board, whatever setCage() puts in
+        this.support = new int[cellCount];
+        this.stats = SearchStats.ENABLED ? new SearchStats("propagator", puzzle) : null;
+    }
+
+    /**
+     * Propagator constructor - copy of other's search state as it was when other's trail held mark entries
+     * (trail of the copy starts empty), used to hand a subtree of an enumeration to another thread
+     * @param other Propagator to copy, not modified
+     * @param mark trail size to rewind the copy's domains to (other must be fully propagated at mark)
+     */
+    private Propagator(Propagator other, int mark) {
+        this(other.puzzle, other.cancelled);
+        System.arraycopy(other.cageOfCell, 0, cageOfCell, 0, cellCount);
+        System.arraycopy(other.cages, 0, cages, 0, other.cageCount);
+        System.arraycopy(other.cageCells, 0, cageCells, 0, other.cageCount);
+        System.arraycopy(other.cageDomains, 0, cageDomains, 0, other.cageCount);
+        cageCount = other.cageCount;
+        System.arraycopy(other.domain, 0, domain, 0, cellCount);
+        for (int t = other.trailSize - 1; t >= mark; t--)
+            domain[other.trailCell[t]] = other.trailMask[t];
+    }
+
+    /**
+     * hitNodeLimit() - true if solve() gave up at the node limit (the board may still have a solution)
+     */
+    boolean hitNodeLimit() {
+        return nodeLimitHit;
+    }
+
+    /**
+     * snapshot() - copies the values decided so far into board (0 where a cell still has more than one value).
+     * Safe to call from another thread while solve() runs, but the copy may mix two search steps (display only)
+     * @param board array of cellCount values to fill
+     */
+    void snapshot(int[] board) {
+        for (int cell = 0; cell < board.length; cell++) {
+            int mask = domain[cell];
+            board[cell] = Integer.bitCount(mask) == 1 ? Integer.numberOfTrailingZeros(mask) : 0;
+        }
+    }
+
+    /**
+     * getStats() - search counters of solve() (null unless SearchStats.ENABLED)
+     */
+    SearchStats getStats() {
+        return stats;
+    }
+
+    /**
+     * solve() - propagates initial domains, then searches for a solution
+     * @return solved board values (cell id -> value), or null if the board has no solution (or solve was cancelled)
+     */
+    int[] solve() {
+        if (SearchStats.ENABLED)
+            stats.start();
+        boolean solved = propagateInitial() && search(0);
+        if (SearchStats.ENABLED)
+            stats.finish(solved);
+        return solved ? values() : null;
+    }
+
+    /**
+     * countSolutions() - searches the whole board (same search as solve()), counting solutions until limit
+     * @param limit stop counting once this many are found (2 is enough to tell a unique puzzle)
+     * @return number of solutions, at most limit (fewer than the real count if solve was cancelled)
+     */
+    long countSolutions(long limit) {
+        solutionLimit = limit;
+        if (SearchStats.ENABLED)
+            stats.start();
+        if (propagateInitial())
+            search(0);
+        if (SearchStats.ENABLED)
+            stats.finish(solutions > 0);
+        return solutions;
+    }
+
+    /**
+     * solveExcept() - searches the whole board again (from the domains setCage() left) for a solution other
+     * than excluded, e.g. a counterexample to a generated puzzle being unique
+     * @param excluded board the search skips (cell id -> value)
+     * @return solved board different from excluded, or null if there is none (or solve was cancelled)
+     */
+    int[] solveExcept(int[] excluded) {
+        // rewind the last search back to the initial domains, trail and all
+        undo(0);
+        this.excluded = excluded;
+        solutionLimit = 1;
+        solutions = 0;
+        boolean solved = propagateInitial() && search(0);
+        this.excluded = null;
+        return solved ? values() : null;
+    }
+
+    /**
+     * setCage() - replaces cage c (or adds a cage, if c is the number of cages) in place: only the domains of
+     * its cells are rebuilt, every other cage keeps its cells, tuples and initial domains.
+     * Cages must still cover each cell once by the next search (e.g. a split sets the first piece over the old
+     * cage, then adds the rest)
+     * @param c index of cage to replace, or number of cages to add one
+     * @param cage new Cage
+     */
+    void setCage(int c, Cage cage) {
+        // domains go back to the initial masks before the changed cells get their new ones
+        undo(0);
+        if (c == cageCount)
+            cageCount++;
+        cages[c] = cage;
+        cageCells[c] = cage.cells;
+        cageDomains[c] = cage.domain;
+        for (int i = 0; i < cage.cells.length; i++) {
+            cageOfCell[cage.cells[i]] = c;
+            domain[cage.cells[i]] = cage.domain.cellMasks[i];
+        }
+    }
+
+    /**
+     * solutions() - every solution of puzzle, found lazily: the search only runs as far as the stream is pulled.
+     * Parallel streams split off untried branches near the root to other threads.
+     * @param puzzle Puzzle to solve
+     * @return Stream of solved boards (cell id -> value)
+     */
+    static Stream<int[]> solutions(Puzzle puzzle) {
+        return StreamSupport.stream(new Propagator(puzzle).new SolutionSpliterator(), false);
+    }
+
+    /**
+     * propagateInitial() - propagates domains before any search: every cell that starts with a single value,
+     * and every cage once
+     * @return false if the board has no solution
+     */
+    private boolean propagateInitial() {
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (Integer.bitCount(domain[cell]) == 1)
+                singleQueue[singleQueueSize++] = cell;
+        }
+        for (int c = 0; c < cageCount; c++)
+            markCageDirty(c);
+        return propagate();
+    }
+
+    /**
+     * values() - solved domains (every domain a single value) converted from masks to values
+     */
+    private int[] values() {
+        int[] values = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++)
+            values[cell] = Integer.numberOfTrailingZeros(domain[cell]);
+        return values;
+    }
+
+    /**
+     * mrvCell() - unassigned cell with fewest (more than one) remaining values
+     * @return cell id, or -1 if every cell has a single value
+     */
+    private int mrvCell() {
+        int bestCell = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = Integer.bitCount(domain[cell]);
+            if (count > 1 && count < bestCount) {
+                bestCell = cell;
+                bestCount = count;
+                // can't do better than two values
+                if (count == 2)
+                    break;
+            }
+        }
+        return bestCell;
+    }
+
+    /**
+     * getNodes() - number of search tree nodes visited by solve()
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * search() - picks unassigned cell with fewest values (MRV), tries each value, propagates, recurses
+     * @param depth number of values branched on above this node
+     * @return true if solutionLimit solutions were found (domains hold the last one), false if no (more) value works
+     */
+    private boolean search(int depth) {
+        // cancelled: unwind without a solution
+        if (cancelled.get())
+            return false;
+        if (nodes == nodeLimit) {
+            nodeLimitHit = true;
+            return false;
+        }
+        nodes++;
+        if (SearchStats.ENABLED)
+            stats.node(depth);
+        int bestCell = random == null ? mrvCell() : randomMrvCell();
+        // base case: every cell has a single value (propagation guarantees they are consistent),
+        // stop unless more solutions are wanted
+        if (bestCell == -1)
+            return !isExcluded() && ++solutions >= solutionLimit;
+
+        // try each value in cell's domain (lowest set bit first, unless random)
+        for (int bits = domain[bestCell]; bits != 0; ) {
+            int bit = random == null ? bits & -bits : randomBit(bits);
+            bits ^= bit;
+            int mark = trailSize;
+            // assign value, propagate consequences, recurse
+            if (setDomain(bestCell, bit) && propagate() && search(depth + 1))
+                return true;
+            // undo every domain change made since mark
+            undo(mark);
+            if (SearchStats.ENABLED)
+                stats.backtracks++;
+        }
+        // no value works in bestCell
+        return false;
+    }
+
+    /**
+     * isExcluded() - true if the solved domains spell out excluded (see solveExcept())
+     */
+    private boolean isExcluded() {
+        if (excluded == null)
+            return false;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (domain[cell] != 1 << excluded[cell])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * randomMrvCell() - like mrvCell(), but a random one of the cells tied for fewest values
+     */
+    private int randomMrvCell() {
+        int bestCell = -1;
+        int bestCount = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int count = Integer.bitCount(domain[cell]);
+            if (count <= 1 || count > bestCount)
+                continue;
+            if (count < bestCount) {
+                bestCount = count;
+                ties = 0;
+            }
+            // reservoir sampling: each tied cell ends up picked with equal chance
+            if (random.nextInt(++ties) == 0)
+                bestCell = cell;
+        }
+        return bestCell;
+    }
+
+    /**
+     * randomBit() - random set bit of bits
+     */
+    private int randomBit(int bits) {
+        for (int skip = random.nextInt(Integer.bitCount(bits)); skip > 0; skip--)
+            bits &= bits - 1;
+        return bits & -bits;
+    }
+
+    /**
+     * propagate() - removes values until no row, col or cage rule changes any domain
+     * @return false if some domain became empty (no solution from this state)
+     */
+    private boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            // naked singles: remove each single value from its row and col
+            while (singleQueueSize > 0) {
+                int cell = singleQueue[--singleQueueSize];
+                if (!removeFromPeers(cell))
+                    return false;
+            }
+            // cages: keep only values still in a valid tuple
+            while (dirtyCageCount > 0) {
+                int c = dirtyCages[--dirtyCageCount];
+                cageDirty[c] = false;
+                if (!filterCage(c))
+                    return false;
+                // cage filtering may create new singles, propagate them first
+                if (singleQueueSize > 0)
+                    break;
+            }
+            if (singleQueueSize > 0 || dirtyCageCount > 0)
+                continue;
+            // hidden singles (only runs once the cheaper rules are exhausted)
+            int before = trailSize;
+            if (!hiddenSingles())
+                return false;
+            changed = trailSize != before;
+        }
+        return true;
+    }
+
+    /**
+     * removeFromPeers() - removes cell's single value from every other cell in its row and col
+     * @param cell cell with a single value
+     * @return false if a peer's domain became empty
+     */
+    private boolean removeFromPeers(int cell) {
+        int bit = domain[cell];
+        int x = cell / boardSize;
+        int y = cell % boardSize;
+        for (int i = 0; i < boardSize; i++) {
+            int rowPeer = x * boardSize + i;
+            int colPeer = i * boardSize + y;
+            if (SearchStats.ENABLED) {
+                if (rowPeer != cell && (domain[rowPeer] & bit) != 0)
+                    stats.rowRejections++;
+                if (colPeer != cell && (domain[colPeer] & bit) != 0)
+                    stats.colRejections++;
+            }
+            if (rowPeer != cell && !setDomain(rowPeer, domain[rowPeer] & ~bit))
+                return false;
+            if (colPeer != cell && !setDomain(colPeer, domain[colPeer] & ~bit))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * filterCage() - removes tuples that use a value no longer in a cell's domain, narrows each
+     * cell of the cage to the values of the remaining tuples
+     * @param c cage index
+     * @return false if no tuple fits the current domains
+     */
+    private boolean filterCage(int c) {
+        int[] cells = cageCells[c];
+        int size = cells.length;
+        // too many tuples to list: only check the total once every cell has a single value
+        if (!cageDomains[c].isListed())
+            return checkFullCage(c);
+        for (int i = 0; i < size; i++)
+            support[i] = 0;
+
+        for (int[] tuple : cageDomains[c].tuples) {
+            // tuple fits if every value is still in its cell's domain
+            boolean fits = true;
+            for (int i = 0; i < size && fits; i++)
+                fits = (domain[cells[i]] & (1 << tuple[i])) != 0;
+            if (fits) {
+                for (int i = 0; i < size; i++)
+                    support[i] |= 1 << tuple[i];
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            // (cages added by setCage() have no counter)
+            if (SearchStats.ENABLED && c < stats.cageRejections.length)
+                stats.cageRejections[c] += Integer.bitCount(domain[cells[i]] & ~support[i]);
+            if (!setDomain(cells[i], domain[cells[i]] & support[i]))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * checkFullCage() - checks the total of a cage whose domain lists no tuples, once all its cells are single
+     * @param c cage index
+     * @return false if the cage is full and misses its total
+     */
+    private boolean checkFullCage(int c) {
+        int[] cells = cageCells[c];
+        for (int i = 0; i < cells.length; i++) {
+            if (Integer.bitCount(domain[cells[i]]) != 1)
+                return true;
+            // support is free scratch here: the cage's values
+            support[i] = Integer.numberOfTrailingZeros(domain[cells[i]]);
+        }
+        Cage cage = cages[c];
+        return CageDomain.reachesTotal(cage.op, cage.total, java.util.Arrays.copyOf(support, cells.length));
+    }
+
+    /**
+     * hiddenSingles() - places each value that fits in only one cell of a row or col into that cell
+     * @return false if a value fits in no cell of some row or col
+     */
+    private boolean hiddenSingles() {
+        for (int line = 0; line < boardSize; line++) {
+            // once: values seen in at least one cell, twice: values seen in two or more cells
+            int rowOnce = 0, rowTwice = 0, colOnce = 0, colTwice = 0;
+            for (int i = 0; i < boardSize; i++) {
+                int rowBits = domain[line * boardSize + i];
+                int colBits = domain[i * boardSize + line];
+                rowTwice |= rowOnce & rowBits;
+                rowOnce |= rowBits;
+                colTwice |= colOnce & colBits;
+                colOnce |= colBits;
+            }
+            int all = ((1 << boardSize) - 1) << 1;
+            // a value missing from a whole row or col can't be placed
+            if (rowOnce != all || colOnce != all)
+                return false;
+            // values seen exactly once are placed in the cell that holds them
+            int rowSingles = rowOnce & ~rowTwice;
+            int colSingles = colOnce & ~colTwice;
+            for (int i = 0; i < boardSize; i++) {
+                int rowCell = line * boardSize + i;
+                int colCell = i * boardSize + line;
+                // two values that only fit in the same cell can't both be placed
+                int rowHit = domain[rowCell] & rowSingles;
+                if (Integer.bitCount(rowHit) > 1 || rowHit != 0 && !setDomain(rowCell, rowHit))
+                    return false;
+                int colHit = domain[colCell] & colSingles;
+                if (Integer.bitCount(colHit) > 1 || colHit != 0 && !setDomain(colCell, colHit))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * setDomain() - narrows cell's domain to mask, records old domain on trail, queues follow-up work
+     * @param cell cell to narrow
+     * @param mask new domain (must be a subset of the current domain)
+     * @return false if the new domain is empty
+     */
+    private boolean setDomain(int cell, int mask) {
+        int old = domain[cell];
+        if (mask == old)
+            return true;
+        // empty domain: dead end
+        if (mask == 0)
+            return false;
+        trailCell[trailSize] = cell;
+        trailMask[trailSize] = old;
+        trailSize++;
+        domain[cell] = mask;
+
+        // new single value must be removed from row and col
+        if (Integer.bitCount(mask) == 1)
+            singleQueue[singleQueueSize++] = cell;
+        markCageDirty(cageOfCell[cell]);
+        return true;
+    }
+
+    /**
+     * markCageDirty() - queues cage c to be filtered (once)
+     */
+    private void markCageDirty(int c) {
+        if (!cageDirty[c]) {
+            cageDirty[c] = true;
+            dirtyCages[dirtyCageCount++] = c;
+        }
+    }
+
+    /**
+     * undo() - restores domains changed since trail position mark, clears pending propagation work
+     * @param mark trail size to restore to
+     */
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            domain[trailCell[trailSize]] = trailMask[trailSize];
+        }
+        singleQueueSize = 0;
+        while (dirtyCageCount > 0)
+            cageDirty[dirtyCages[--dirtyCageCount]] = false;
+    }
+
+    /**
+     * SolutionSpliterator Object - search of solutions() with an explicit stack of branch frames instead of
+     * recursion, so it can stop at each solution and resume from there on the next tryAdvance()
+     */
+    private class SolutionSpliterator implements Spliterator<int[]> {
+        // frame per branched cell: cell, values not tried yet, trail size before a value was set
+        private final int[] frameCell = new int[cellCount];
+        private final int[] frameBits = new int[cellCount];
+        private final int[] frameMark = new int[cellCount];
+        private int depth;
+        private boolean started;    // initial propagation done
+        private boolean pending;    // domains hold a solution not handed out yet
+
+        /**
+         * SolutionSpliterator constructor - whole search, starts on first tryAdvance()/trySplit()
+         */
+        SolutionSpliterator() {
+        }
+
+        /**
+         * SolutionSpliterator constructor - split-off subtree: values bits of cell (domains already propagated)
+         */
+        SolutionSpliterator(int cell, int bits) {
+            started = true;
+            frameCell[0] = cell;
+            frameBits[0] = bits;
+            depth = 1;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            if (!started)
+                start();
+            // same search as search(), one loop iteration per value tried
+            while (!pending && depth > 0 && !cancelled.get()) {
+                int top = depth - 1;
+                // undo the previous value tried in this frame (or the solution just handed out)
+                undo(frameMark[top]);
+                if (frameBits[top] == 0) {
+                    depth--;
+                    continue;
+                }
+                int bit = frameBits[top] & -frameBits[top];
+                frameBits[top] ^= bit;
+                nodes++;
+                if (setDomain(frameCell[top], bit) && propagate())
+                    branch();
+            }
+            if (!pending)
+                return false;
+            pending = false;
+            action.accept(values());
+            return true;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            if (!started)
+                start();
+            while (!pending && depth > 0) {
+                // shallowest frame with untried values holds the biggest untried subtrees (a single untried value
+                // can only be handed off if a deeper frame keeps this spliterator busy)
+                for (int f = 0; f < depth; f++) {
+                    int bits = frameBits[f];
+                    if (Integer.bitCount(bits) < (f < depth - 1 ? 1 : 2))
+                        continue;
+                    // hand off the higher half of the untried values (the only one if just one is left)
+                    int give = bits;
+                    for (int i = Integer.bitCount(bits) / 2; i > 0; i--)
+                        give &= give - 1;
+                    frameBits[f] = bits ^ give;
+                    Propagator copy = new Propagator(Propagator.this, frameMark[f]);
+                    return copy.new SolutionSpliterator(frameCell[f], give);
+                }
+                // all that's left is one value of the top frame: step into it, so its children can be split
+                int top = depth - 1;
+                if (frameBits[top] == 0)
+                    return null;
+                undo(frameMark[top]);
+                int bit = frameBits[top];
+                frameBits[top] = 0;
+                nodes++;
+                // dead end: nothing to split, tryAdvance() unwinds it
+                if (!setDomain(frameCell[top], bit) || !propagate())
+                    return null;
+                branch();
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | DISTINCT;
+        }
+
+        /**
+         * start() - initial propagation, then first frame
+         */
+        private void start() {
+            started = true;
+            if (propagateInitial())
+                branch();
+        }
+
+        /**
+         * branch() - pushes a frame for the MRV cell, or marks domains as a solution if every cell has a single value
+         */
+        private void branch() {
+            int cell = mrvCell();
+            if (cell == -1) {
+                pending = true;
+                return;
+            }
+            frameCell[depth] = cell;
+            frameBits[depth] = domain[cell];
+            frameMark[depth] = trailSize;
+            depth++;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.awt.Color;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Puzzle Object - a KenKen board as read from file: board size, Cages, and the per-cell lookups the solvers use.
+ * [read-only once created, every solve keeps its own board in a SolveContext]
+ */
+
+class Puzzle {
+    final int boardSize;        // size of board (3,4, or 6 using test files, but could be of any int size)
+    final Cage[] cages;         // Cages in file order
+    final int[] cageOfCell;     // index into cages of the Cage each cell belongs to
+    final int[] candidateMask;  // bitmask of values each cell can hold given its cage (from CageDomain)
+
+    /**
+     * Puzzle constructor - builds cageOfCell and candidateMask from cages
+     * @param boardSize size of board
+     * @param cages Cages covering every cell of board
+     */
+    Puzzle(int boardSize, Cage[] cages) {
+        this.boardSize = boardSize;
+        this.cages = cages;
+        this.cageOfCell = new int[boardSize * boardSize];
+        this.candidateMask = new int[boardSize * boardSize];
+
+        for (int c = 0; c < cages.length; c++) {
+            Cage cage = cages[c];
+            for (int i = 0; i < cage.cells.length; i++) {
+                // for each cell in cage, set cageOfCell to cage's index
+                cageOfCell[cage.cells[i]] = c;
+                // set candidate mask of each cell from the cage's valid value tuples
+                candidateMask[cage.cells[i]] = cage.domain.cellMasks[i];
+            }
+        }
+    }
+
+    /**
+     * isSolution() - true if board is a Latin square (values 1 - boardSize, no repeat in a row or col) whose
+     * cages each reach their total
+     * @param board board to check (cell id -> value)
+     */
+    boolean isSolution(int[] board) {
+        if (board == null || board.length != boardSize * boardSize)
+            return false;
+        int[] rowMask = new int[boardSize], colMask = new int[boardSize];
+        for (int cell = 0; cell < board.length; cell++) {
+            int value = board[cell];
+            if (value < 1 || value > boardSize)
+                return false;
+            int x = cell / boardSize, y = cell % boardSize;
+            // value already in row or col
+            if (((rowMask[x] | colMask[y]) & (1 << value)) != 0)
+                return false;
+            rowMask[x] |= 1 << value;
+            colMask[y] |= 1 << value;
+        }
+        for (Cage cage : cages) {
+            int[] values = new int[cage.cells.length];
+            for (int i = 0; i < values.length; i++)
+                values[i] = board[cage.cells[i]];
+            if (!CageDomain.reachesTotal(cage.op, cage.total, values))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * readFile() - reads KenKen file (text or binary, see PuzzleReader), creates Cages
+     * @param fileName path of KenKen file
+     * @return Puzzle read from file (first puzzle, if file holds more than one)
+     * @throws IOException if file can't be read, is malformed, or holds no puzzle
+     */
+    static Puzzle readFile(String fileName) throws IOException {
+        try (PuzzleReader reader = new PuzzleReader(fileName)) {
+            Puzzle puzzle = reader.next();
+            if (puzzle == null)
+                throw new IOException(fileName + " holds no puzzle");
+            return puzzle;
+        }
+    }
+
+    /**
+     * readAll() - reads every puzzle in a KenKen file (text or binary, see PuzzleReader)
+     * [use PuzzleReader directly to stream files too large to hold every puzzle at once]
+     * @param fileName path of KenKen file
+     * @return Puzzles read from file, in file order
+     * @throws IOException if file can't be read or is malformed
+     */
+    static List<Puzzle> readAll(String fileName) throws IOException {
+        List<Puzzle> puzzles = new ArrayList<>();
+        try (PuzzleReader reader = new PuzzleReader(fileName)) {
+            Puzzle puzzle;
+            while ((puzzle = reader.next()) != null)
+                puzzles.add(puzzle);
+        }
+        return puzzles;
+    }
+
+    /**
+     * getRandColor() - get random Color
+     * @return random Color
+     */
+    static Color getRandColor(){
+        // create new Random to assign color
+        Random rand = new Random();
+        // return random Color object based on Random.nextInt, bound white
+        // note: nextInt(bound) returns "uniformly distributed int value between 0 and bound"
+        return new Color(rand.nextInt(0xFFFFFF));
+    }
+}
@@ -0,0 +1,353 @@
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * PuzzleFingerprint Object - stable key of a puzzle that is the same for every copy of it with rows permuted,
+ * cols permuted, board transposed, or cages listed in another file order, plus the cell mapping between the
+ * puzzle and that canonical form (so a solution stored in canonical form can be mapped back).
+ *
+ * Rows and cols are ordered by colors refined from the cages they cross (like Weisfeiler-Lehman refinement).
+ * Rows/cols left with equal colors are tried in every order while that's at most MAX_TIE_ORDERS orders; past that
+ * they keep file order, so the key is still exact (equal keys always mean the same puzzle) but some permuted
+ * copies may get different keys.
+ * Each order is encoded into a reused int buffer (see encode()) and compared in place, so trying an order
+ * allocates nothing.
+ *
+ * Layout is the cheap first-level key: the puzzle's exact layout with no canonicalization, equal only for copies
+ * with the same cells in the same places (cages in any file order).
+ */
+
+class PuzzleFingerprint {
+    // most orders of tied rows/cols tried per orientation (each costs one encode() of the board)
+    private static final int MAX_TIE_ORDERS = 32;
+
+    final String key;               // hex of first 16 bytes of SHA-256 of the canonical encoding
+    private final int[] toCanonical;    // cell id in puzzle -> cell id in canonical form
+
+    private PuzzleFingerprint(String key, int[] toCanonical) {
+        this.key = key;
+        this.toCanonical = toCanonical;
+    }
+
+    /**
+     * toCanonical() - board of the puzzle rearranged into canonical cell order
+     * @param board solved board (cell id -> value)
+     */
+    int[] toCanonical(int[] board) {
+        int[] canonical = new int[board.length];
+        for (int cell = 0; cell < board.length; cell++)
+            canonical[toCanonical[cell]] = board[cell];
+        return canonical;
+    }
+
+    /**
+     * fromCanonical() - board in canonical cell order rearranged back into the puzzle's own cell order
+     * @param canonical solved board in canonical form
+     */
+    int[] fromCanonical(int[] canonical) {
+        int[] board = new int[canonical.length];
+        for (int cell = 0; cell < board.length; cell++)
+            board[cell] = canonical[toCanonical[cell]];
+        return board;
+    }
+
+    /**
+     * of() - fingerprint of puzzle: smallest canonical encoding over both orientations and every tried tie order
+     * @param puzzle Puzzle to fingerprint
+     */
+    static PuzzleFingerprint of(Puzzle puzzle) {
+        Search search = new Search(puzzle);
+        search.orientation(false);
+        search.orientation(true);
+        return new PuzzleFingerprint(hash(search.best), search.bestToCanonical);
+    }
+
+    /**
+     * Layout Object - exact layout of a puzzle (board size, then each cell's cage as op, total and cells),
+     * hashable, for lookups that skip canonicalization when the very same layout was seen before
+     */
+    static final class Layout {
+        private final int[] encoding;
+        private final int hash;
+
+        /**
+         * Layout constructor - encodes puzzle as it is (identity cell mapping)
+         * @param puzzle Puzzle whose layout to key
+         */
+        Layout(Puzzle puzzle) {
+            this.encoding = new int[encodedLength(puzzle)];
+            encode(puzzle, null, null, new int[puzzle.cages.length], encoding);
+            this.hash = Arrays.hashCode(encoding);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Layout && hash == ((Layout) o).hash && Arrays.equals(encoding, ((Layout) o).encoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Search Object - scratch of one of(): tries row/col orders in place, keeps the smallest encoding
+     */
+    private static class Search {
+        final Puzzle puzzle;
+        final int n;
+        final int[] rowOrder, colOrder;     // lines in canonical order (permuted in place)
+        final long[] rowColor, colColor;    // refined colors of the puzzle as given (swapped when transposed)
+        boolean permuteRows, permuteCols;   // tie orders tried (else lines keep their sorted base order)
+        boolean transposed;
+        long[] lineColor, crossColor;       // colors of rows / cols of the current orientation
+        final int[] rowPos, colPos;         // canonical row of each row, canonical col of each col (current orientation)
+        final int[] toCanonical, fromCanonical;
+        final int[] anchor;                 // smallest canonical cell of each cage
+        int[] encoding;                     // encoding of the current order
+        int[] best;                         // smallest encoding so far (null before the first)
+        final int[] bestToCanonical;
+
+        Search(Puzzle puzzle) {
+            this.puzzle = puzzle;
+            this.n = puzzle.boardSize;
+            this.rowOrder = new int[n];
+            this.colOrder = new int[n];
+            this.rowColor = new long[n];
+            this.colColor = new long[n];
+            refine(puzzle, rowColor, colColor);
+            this.rowPos = new int[n];
+            this.colPos = new int[n];
+            this.toCanonical = new int[n * n];
+            this.fromCanonical = new int[n * n];
+            this.anchor = new int[puzzle.cages.length];
+            this.encoding = new int[encodedLength(puzzle)];
+            this.bestToCanonical = new int[n * n];
+        }
+
+        /**
+         * orientation() - orders rows/cols of puzzle (transposed or not) by color, tries tie orders
+         */
+        void orientation(boolean transposed) {
+            this.transposed = transposed;
+            lineColor = transposed ? colColor : rowColor;
+            crossColor = transposed ? rowColor : colColor;
+            long rowOrders = sortByColor(lineColor, rowOrder);
+            long colOrders = sortByColor(crossColor, colOrder);
+            permuteRows = rowOrders <= MAX_TIE_ORDERS;
+            permuteCols = colOrders <= MAX_TIE_ORDERS / (permuteRows ? rowOrders : 1);
+            permuteRows(0);
+        }
+
+        /**
+         * permuteRows() - every order of rowOrder permuting rows only within their color group, from pos on
+         * (then every col order of each)
+         */
+        private void permuteRows(int pos) {
+            if (pos == n || !permuteRows) {
+                permuteCols(0);
+                return;
+            }
+            // swap each later row of the same color group into pos
+            for (int i = pos; i < n && lineColor[rowOrder[i]] == lineColor[rowOrder[pos]]; i++) {
+                swap(rowOrder, pos, i);
+                permuteRows(pos + 1);
+                swap(rowOrder, pos, i);
+            }
+        }
+
+        /**
+         * permuteCols() - every order of colOrder permuting cols only within their color group, from pos on
+         * (each one encoded)
+         */
+        private void permuteCols(int pos) {
+            if (pos == n || !permuteCols) {
+                tryOrder();
+                return;
+            }
+            for (int i = pos; i < n && crossColor[colOrder[i]] == crossColor[colOrder[pos]]; i++) {
+                swap(colOrder, pos, i);
+                permuteCols(pos + 1);
+                swap(colOrder, pos, i);
+            }
+        }
+
+        /**
+         * tryOrder() - encodes the current row/col order, keeps it if its encoding is the smallest so far
+         */
+        private void tryOrder() {
+            for (int i = 0; i < n; i++) {
+                rowPos[rowOrder[i]] = i;
+                colPos[colOrder[i]] = i;
+            }
+            // cell (x, y) is in row y, col x of the transposed puzzle
+            for (int x = 0, cell = 0; x < n; x++) {
+                for (int y = 0; y < n; y++, cell++) {
+                    int canonical = transposed ? rowPos[y] * n + colPos[x] : rowPos[x] * n + colPos[y];
+                    toCanonical[cell] = canonical;
+                    fromCanonical[canonical] = cell;
+                }
+            }
+            encode(puzzle, toCanonical, fromCanonical, anchor, encoding);
+            if (best == null || Arrays.compare(encoding, best) < 0) {
+                // swap buffers: the old best is overwritten by the next order
+                int[] old = best == null ? new int[encoding.length] : best;
+                best = encoding;
+                encoding = old;
+                System.arraycopy(toCanonical, 0, bestToCanonical, 0, toCanonical.length);
+            }
+        }
+    }
+
+    /**
+     * encodedLength() - ints in an encoding of puzzle: board size, a cage anchor per cell, op and total per cage
+     */
+    private static int encodedLength(Puzzle puzzle) {
+        return 1 + puzzle.boardSize * puzzle.boardSize + 2 * puzzle.cages.length;
+    }
+
+    /**
+     * encode() - board size, then for each canonical cell in order the smallest canonical cell of its cage (its
+     * anchor), followed by the cage's op and total at the anchor itself. Doesn't depend on cage file order, and
+     * can be decoded back into the cages (so equal encodings mean equal puzzles).
+     * @param toCanonical cell id -> canonical cell id, null for the identity
+     * @param fromCanonical inverse of toCanonical, null for the identity
+     * @param anchor scratch, one int per cage
+     * @param out encodedLength(puzzle) ints
+     */
+    private static void encode(Puzzle puzzle, int[] toCanonical, int[] fromCanonical, int[] anchor, int[] out) {
+        int cellCount = puzzle.cageOfCell.length;
+        Arrays.fill(anchor, Integer.MAX_VALUE);
+        for (int cell = 0; cell < cellCount; cell++) {
+            int c = puzzle.cageOfCell[cell];
+            anchor[c] = Math.min(anchor[c], toCanonical == null ? cell : toCanonical[cell]);
+        }
+        int k = 0;
+        out[k++] = puzzle.boardSize;
+        for (int canonical = 0; canonical < cellCount; canonical++) {
+            int c = puzzle.cageOfCell[fromCanonical == null ? canonical : fromCanonical[canonical]];
+            out[k++] = anchor[c];
+            if (anchor[c] == canonical) {
+                out[k++] = puzzle.cages[c].op;
+                out[k++] = puzzle.cages[c].total;
+            }
+        }
+    }
+
+    /**
+     * refine() - colors rows and cols of puzzle by the cages they cross until coloring stops splitting. Colors are
+     * 64-bit hashes of signatures, so they don't depend on input order (a hash collision only merges two colors,
+     * which leaves more ties to try, the key stays exact). Signatures treat rows and cols alike, so the transposed
+     * puzzle's row colors are these col colors and the other way round.
+     * @param rowColor filled with row colors
+     * @param colColor filled with col colors
+     */
+    private static void refine(Puzzle puzzle, long[] rowColor, long[] colColor) {
+        int n = puzzle.boardSize;
+        int cageCount = puzzle.cages.length;
+        long[] cageColor = new long[cageCount];
+        long[] rowSig = new long[n], colSig = new long[n];
+        long[] scratch = new long[n];
+        int distinct = 2;
+        for (int round = 0; round < 2 * n; round++) {
+            // cage signature: op, total and the multiset of {row color, col color} of its cells
+            Arrays.fill(cageColor, 0);
+            for (int x = 0; x < n; x++) {
+                for (int y = 0; y < n; y++) {
+                    long low = Math.min(rowColor[x], colColor[y]), high = Math.max(rowColor[x], colColor[y]);
+                    cageColor[puzzle.cageOfCell[x * n + y]] += mix(low * 31 + high);
+                }
+            }
+            for (int c = 0; c < cageCount; c++)
+                cageColor[c] = mix(mix(puzzle.cages[c].op * 31L + puzzle.cages[c].total) + cageColor[c]);
+
+            // row signature: own color, then the multiset of (col color, cage color) of its cells; cols alike
+            Arrays.fill(rowSig, 0);
+            Arrays.fill(colSig, 0);
+            for (int x = 0; x < n; x++) {
+                for (int y = 0; y < n; y++) {
+                    long cage = cageColor[puzzle.cageOfCell[x * n + y]];
+                    rowSig[x] += mix(colColor[y] * 31 + cage);
+                    colSig[y] += mix(rowColor[x] * 31 + cage);
+                }
+            }
+            for (int line = 0; line < n; line++) {
+                rowColor[line] = mix(rowColor[line] * 31 + rowSig[line]);
+                colColor[line] = mix(colColor[line] * 31 + colSig[line]);
+            }
+            int newDistinct = countDistinct(rowColor, scratch) + countDistinct(colColor, scratch);
+            if (newDistinct == distinct)
+                break;
+            distinct = newDistinct;
+        }
+    }
+
+    /**
+     * mix() - 64-bit finalizer of SplitMix64 (every input bit affects every output bit)
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int countDistinct(long[] colors, long[] scratch) {
+        System.arraycopy(colors, 0, scratch, 0, colors.length);
+        Arrays.sort(scratch);
+        int distinct = 1;
+        for (int i = 1; i < scratch.length; i++) {
+            if (scratch[i] != scratch[i - 1])
+                distinct++;
+        }
+        return distinct;
+    }
+
+    /**
+     * sortByColor() - fills order with the lines sorted by color (ties in input order)
+     * @return number of orders permuting lines only within their color group (product of group size!), capped
+     * just past MAX_TIE_ORDERS
+     */
+    private static long sortByColor(long[] color, int[] order) {
+        int n = color.length;
+        // insertion sort: n is at most 31, and it is stable
+        for (int i = 0; i < n; i++) {
+            int line = i, j = i;
+            for (; j > 0 && color[order[j - 1]] > color[line]; j--)
+                order[j] = order[j - 1];
+            order[j] = line;
+        }
+        long count = 1;
+        for (int i = 0, j; i < n && count <= MAX_TIE_ORDERS; i = j) {
+            for (j = i; j < n && color[order[j]] == color[order[i]]; j++)
+                count *= j - i + 1;
+        }
+        return count;
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    /**
+     * hash() - hex of first 16 bytes of SHA-256 of encoding
+     */
+    private static String hash(int[] encoding) {
+        try {
+            ByteBuffer bytes = ByteBuffer.allocate(4 * encoding.length);
+            bytes.asIntBuffer().put(encoding);
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes.array());
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++)
+                hex.append(Character.forDigit(digest[i] >> 4 & 0xF, 16)).append(Character.forDigit(digest[i] & 0xF, 16));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM must provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * PuzzleReader Object - streams Puzzles out of a file one at a time, so files holding any number of puzzles
+ * can be read in fixed memory. Reads either format:
+ *  - text: the test_files format, parsed byte by byte from an NIO buffer (no String per token). A line holding
+ *    only a board size starts a new puzzle, every following line is a cage of that puzzle, blank lines are skipped.
+ *  - binary: written by PuzzleWriter, recognized by its MAGIC header (see PuzzleWriter for the layout).
+ * Malformed input throws FormatException giving the file, line and col (text) or byte offset (binary).
+ * Readers of untrusted input (see SolverService) can cap cage size and cancel a read between cages, since building
+ * each cage's CageDomain is the costly part of reading.
+ */
+
+class PuzzleReader implements Closeable {
+    // first bytes of a binary puzzle file
+    static final byte[] MAGIC = {'K', 'K', 'B', '1'};
+    // largest board size whose values (bits 1 - boardSize) fit in an int mask
+    static final int MAX_BOARD_SIZE = 31;
+    // cage operators either format accepts
+    static final String OPS = "+-*/#";
+
+    private final String fileName;
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;     // bytes read from channel, not parsed yet
+    private final boolean binary;   // true if file starts with MAGIC
+    private final Random rand = new Random();  // cage colors
+    private final int maxCageCells;     // larger cages are a FormatException
+    private final AtomicBoolean cancelled;  // reading stops (InterruptedIOException) once this is set
+
+    // text position of next byte (for error messages)
+    private int line = 1;
+    private int col = 1;
+    // bytes consumed before buffer's current contents (binary error offsets)
+    private long consumed;
+
+    // current text line: its numbers (cage total then coords, or just a board size), and op if it has one
+    private int[] tokens = new int[64];
+    private int tokenCount;
+    private char op;
+    private int lineStart;  // line number of current text line
+    private int secondCol;  // col of second number on current text line
+
+    // board size line read ahead while reading the previous puzzle's cages (0 if none)
+    private int pendingBoardSize;
+    private int pendingLine;
+
+    /**
+     * PuzzleReader constructor - opens file, detects format from first bytes
+     * @param fileName path of puzzle file
+     * @throws IOException if file can't be opened
+     */
+    PuzzleReader(String fileName) throws IOException {
+        this(fileName, FileChannel.open(Paths.get(fileName), StandardOpenOption.READ));
+    }
+
+    /**
+     * PuzzleReader constructor - reads puzzles from an open channel (e.g. a request body), detects format
+     * @param name name used in error messages
+     * @param channel channel to read, closed by close()
+     * @throws IOException if channel can't be read
+     */
+    PuzzleReader(String name, ReadableByteChannel channel) throws IOException {
+        this(name, channel, Integer.MAX_VALUE, new AtomicBoolean());
+    }
+
+    /**
+     * PuzzleReader constructor - reads puzzles from an open channel with limits, detects format
+     * @param name name used in error messages
+     * @param channel channel to read, closed by close()
+     * @param maxCageCells most cells a cage may have
+     * @param cancelled next() throws InterruptedIOException before its next cage once this is set
+     * @throws IOException if channel can't be read
+     */
+    PuzzleReader(String name, ReadableByteChannel channel, int maxCageCells, AtomicBoolean cancelled) throws IOException {
+        this.fileName = name;
+        this.channel = channel;
+        this.maxCageCells = maxCageCells;
+        this.cancelled = cancelled;
+        // 64KB buffer, or just enough for the whole file if it is smaller
+        long size = channel instanceof FileChannel ? ((FileChannel) channel).size() : 1 << 16;
+        this.buffer = ByteBuffer.allocate((int) Math.max(MAGIC.length, Math.min(1 << 16, size)));
+        buffer.limit(0);
+        boolean magic = fill(MAGIC.length);
+        for (int i = 0; i < MAGIC.length && magic; i++)
+            magic = buffer.get(buffer.position() + i) == MAGIC[i];
+        this.binary = magic;
+        if (binary)
+            buffer.position(buffer.position() + MAGIC.length);
+    }
+
+    /**
+     * next() - reads next puzzle in file
+     * @return next Puzzle, or null once every puzzle has been read
+     * @throws IOException if file can't be read or is malformed
+     */
+    Puzzle next() throws IOException {
+        return binary ? nextBinary() : nextText();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * nextText() - reads a board size line (or uses the one read ahead) and every cage line up to the next
+     * board size line / end of file
+     */
+    private Puzzle nextText() throws IOException {
+        int boardSize = pendingBoardSize;
+        int sizeLine = pendingLine;
+        pendingBoardSize = 0;
+        // first puzzle: find board size line
+        if (boardSize == 0) {
+            if (!readLine())
+                return null;
+            if (tokenCount != 1 || op != 0)
+                throw error(lineStart, 1, "expected board size line");
+            boardSize = checkBoardSize(tokens[0], lineStart);
+            sizeLine = lineStart;
+        }
+
+        ArrayList<Cage> cages = new ArrayList<>();
+        int[] cageOf = new int[boardSize * boardSize];
+        Arrays.fill(cageOf, -1);
+        while (readLine()) {
+            // next puzzle's board size line: keep it for the next call
+            if (tokenCount == 1 && op == 0) {
+                pendingBoardSize = checkBoardSize(tokens[0], lineStart);
+                pendingLine = lineStart;
+                break;
+            }
+            if (op == 0)
+                throw error(lineStart, secondCol, "expected operator (+ - * / #) after cage total");
+            if (tokenCount < 3 || tokenCount % 2 != 1)
+                throw error(lineStart, 1, "expected x y coord pairs after operator");
+
+            checkCancelled();
+            if ((tokenCount - 1) / 2 > maxCageCells)
+                throw error(lineStart, 1, "cage of " + (tokenCount - 1) / 2 + " cells, at most " + maxCageCells + " allowed");
+            int[] cells = new int[(tokenCount - 1) / 2];
+            for (int i = 0; i < cells.length; i++) {
+                int x = tokens[1 + 2 * i], y = tokens[2 + 2 * i];
+                if (x >= boardSize || y >= boardSize)
+                    throw error(lineStart, 1, "cell (" + x + ", " + y + ") is off a " + boardSize + "x" + boardSize + " board");
+                cells[i] = x * boardSize + y;
+                if (cageOf[cells[i]] != -1)
+                    throw error(lineStart, 1, "cell (" + x + ", " + y + ") is already in the cage on line " + cageOf[cells[i]]);
+                cageOf[cells[i]] = lineStart;
+            }
+            cages.add(new Cage(tokens[0], op, cells, new Color(rand.nextInt(0xFFFFFF)), boardSize));
+        }
+
+        // every cell must be in a cage
+        for (int cell = 0; cell < cageOf.length; cell++) {
+            if (cageOf[cell] == -1)
+                throw error(sizeLine, 1, "cell (" + cell / boardSize + ", " + cell % boardSize + ") is in no cage");
+        }
+        return new Puzzle(boardSize, cages.toArray(new Cage[0]));
+    }
+
+    /**
+     * readLine() - reads next non-blank text line into tokens/op
+     * @return false at end of file
+     */
+    private boolean readLine() throws IOException {
+        tokenCount = 0;
+        op = 0;
+        int b;
+        // skip blank lines
+        while ((b = peek()) == '\n' || b == '\r' || b == ' ' || b == '\t')
+            take();
+        if (b == -1)
+            return false;
+        lineStart = line;
+
+        while ((b = peek()) != -1 && b != '\n') {
+            if (b == ' ' || b == '\t' || b == '\r') {
+                take();
+            }
+            else if (b >= '0' && b <= '9') {
+                int tokenCol = col;
+                if (tokenCount == 1)
+                    secondCol = tokenCol;
+                long value = 0;
+                while ((b = peek()) >= '0' && b <= '9') {
+                    value = value * 10 + (take() - '0');
+                    if (value > Integer.MAX_VALUE)
+                        throw error(line, tokenCol, "number too large");
+                }
+                if (tokenCount == tokens.length)
+                    tokens = Arrays.copyOf(tokens, tokens.length * 2);
+                tokens[tokenCount++] = (int) value;
+            }
+            // op is only valid right after the cage total
+            else if (tokenCount == 1 && op == 0 && OPS.indexOf(b) >= 0) {
+                op = (char) take();
+            }
+            else {
+                throw error(line, col, "unexpected '" + (char) b + "'");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * checkBoardSize() - board size must be 1 - MAX_BOARD_SIZE
+     */
+    private int checkBoardSize(int boardSize, int atLine) throws FormatException {
+        if (boardSize < 1 || boardSize > MAX_BOARD_SIZE)
+            throw error(atLine, 1, "board size " + boardSize + " not in 1 - " + MAX_BOARD_SIZE);
+        return boardSize;
+    }
+
+    /**
+     * nextBinary() - reads one binary puzzle record, with the checks of the text format (known op, at least one
+     * cell per cage, every cell in exactly one cage)
+     */
+    private Puzzle nextBinary() throws IOException {
+        if (!fill(1))
+            return null;
+        long recordStart = offset();
+        int boardSize = checkBoardSizeAt(buffer.get() & 0xFF);
+        need(2);
+        int cageCount = buffer.getShort() & 0xFFFF;
+        Cage[] cages = new Cage[cageCount];
+        // byte offset of the cage each cell is in, -1 if none yet
+        long[] cageOf = new long[boardSize * boardSize];
+        Arrays.fill(cageOf, -1);
+        // cell ids are single bytes on boards of up to 256 cells
+        boolean wide = boardSize * boardSize > 256;
+        for (int c = 0; c < cageCount; c++) {
+            checkCancelled();
+            need(6);
+            long cageStart = offset();
+            char cageOp = (char) (buffer.get() & 0xFF);
+            if (OPS.indexOf(cageOp) < 0)
+                throw errorAt(cageStart, "unknown operator " + (int) cageOp + " (expected one of " + OPS + ")");
+            int total = buffer.getInt();
+            int[] cells = new int[buffer.get() & 0xFF];
+            if (cells.length == 0)
+                throw errorAt(offset() - 1, "cage has no cells");
+            if (cells.length > maxCageCells)
+                throw errorAt(offset() - 1, "cage of " + cells.length + " cells, at most " + maxCageCells + " allowed");
+            need((wide ? 2 : 1) * cells.length);
+            for (int i = 0; i < cells.length; i++) {
+                long at = offset();
+                cells[i] = wide ? buffer.getShort() & 0xFFFF : buffer.get() & 0xFF;
+                if (cells[i] >= cageOf.length)
+                    throw errorAt(at, "cell " + cells[i] + " is off a " + boardSize + "x" + boardSize + " board");
+                if (cageOf[cells[i]] != -1)
+                    throw errorAt(at, "cell (" + cells[i] / boardSize + ", " + cells[i] % boardSize
+                            + ") is already in the cage at byte " + cageOf[cells[i]]);
+                cageOf[cells[i]] = cageStart;
+            }
+            cages[c] = new Cage(total, cageOp, cells, new Color(rand.nextInt(0xFFFFFF)), boardSize);
+        }
+
+        // every cell must be in a cage
+        for (int cell = 0; cell < cageOf.length; cell++) {
+            if (cageOf[cell] == -1)
+                throw errorAt(recordStart, "cell (" + cell / boardSize + ", " + cell % boardSize + ") is in no cage");
+        }
+        return new Puzzle(boardSize, cages);
+    }
+
+    /**
+     * checkBoardSizeAt() - board size check for binary records (error gives byte offset)
+     */
+    private int checkBoardSizeAt(int boardSize) throws FormatException {
+        if (boardSize < 1 || boardSize > MAX_BOARD_SIZE)
+            throw errorAt(offset() - 1, "board size " + boardSize + " not in 1 - " + MAX_BOARD_SIZE);
+        return boardSize;
+    }
+
+    /**
+     * checkCancelled() - stops reading once cancelled is set
+     */
+    private void checkCancelled() throws InterruptedIOException {
+        if (cancelled.get())
+            throw new InterruptedIOException(fileName + ": reading cancelled");
+    }
+
+    /**
+     * need() - makes sure count bytes are buffered, truncated record otherwise
+     */
+    private void need(int count) throws IOException {
+        if (!fill(count))
+            throw errorAt(offset(), "truncated record");
+    }
+
+    /**
+     * offset() - byte offset of buffer's position in file
+     */
+    private long offset() {
+        return consumed + buffer.position();
+    }
+
+    /**
+     * peek() - next byte without consuming it, -1 at end of file
+     */
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill(1))
+            return -1;
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    /**
+     * take() - consumes next byte (peek() must have returned a byte), tracks line/col
+     */
+    private int take() {
+        int b = buffer.get() & 0xFF;
+        if (b == '\n') {
+            line++;
+            col = 1;
+        } else {
+            col++;
+        }
+        return b;
+    }
+
+    /**
+     * fill() - reads from channel until at least count bytes are buffered
+     * @return false if file ends first
+     */
+    private boolean fill(int count) throws IOException {
+        while (buffer.remaining() < count) {
+            consumed += buffer.position();
+            buffer.compact();
+            int read = channel.read(buffer);
+            buffer.flip();
+            if (read == -1)
+                return buffer.remaining() >= count;
+        }
+        return true;
+    }
+
+    /**
+     * error() - FormatException at text line/col
+     */
+    private FormatException error(int atLine, int atCol, String message) {
+        return new FormatException(fileName + ":" + atLine + ":" + atCol + ": " + message);
+    }
+
+    /**
+     * errorAt() - FormatException at binary byte offset
+     */
+    private FormatException errorAt(long offset, String message) {
+        return new FormatException(fileName + ": byte " + offset + ": " + message);
+    }
+
+    /**
+     * FormatException Object - malformed puzzle file, message gives where
+     */
+    static class FormatException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        FormatException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * PuzzleWriter Object - writes Puzzles in the compact binary format PuzzleReader reads back
+ * (or, with writeText(), in the test_files text format).
+ * Layout (big-endian): PuzzleReader.MAGIC, then one record per puzzle:
+ *   u8 boardSize, u16 cageCount, then per cage: u8 op, i32 total, u8 cellCount, cell id * cellCount
+ * Cell ids are u8 on boards of up to 256 cells (16x16), u16 on larger boards
+ * Cages of more than MAX_CAGE_CELLS cells don't fit the u8 cellCount, write() rejects puzzles holding one
+ *
+ * Usage: java KenKen convert in.txt out.kkb  (in may hold any number of puzzles)
+ */
+
+class PuzzleWriter implements Closeable {
+    // most cells of a cage the u8 cellCount field can hold
+    static final int MAX_CAGE_CELLS = 0xFF;
+
+    private final DataOutputStream out;
+
+    /**
+     * PuzzleWriter constructor - creates (or truncates) file, writes MAGIC header
+     * @param fileName path of binary file to write
+     * @throws IOException if file can't be written
+     */
+    PuzzleWriter(String fileName) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+        out.write(PuzzleReader.MAGIC);
+    }
+
+    /**
+     * write() - appends puzzle as one record
+     * @param puzzle Puzzle to write
+     * @throws IOException if file can't be written, or puzzle has a cage of more than MAX_CAGE_CELLS cells
+     * (nothing of puzzle is written then)
+     */
+    void write(Puzzle puzzle) throws IOException {
+        for (Cage cage : puzzle.cages) {
+            if (cage.cells.length > MAX_CAGE_CELLS)
+                throw new IOException("cage of " + cage.cells.length + " cells (" + cage.total + " " + cage.op
+                        + ") doesn't fit the binary format (at most " + MAX_CAGE_CELLS + " cells per cage)");
+        }
+        out.writeByte(puzzle.boardSize);
+        out.writeShort(puzzle.cages.length);
+        for (Cage cage : puzzle.cages) {
+            out.writeByte(cage.op);
+            out.writeInt(cage.total);
+            out.writeByte(cage.cells.length);
+            for (int cell : cage.cells) {
+                if (puzzle.boardSize * puzzle.boardSize <= 256)
+                    out.writeByte(cell);
+                else
+                    out.writeShort(cell);
+            }
+        }
+    }
+
+    /**
+     * writeText() - writes puzzle in the test_files text format: board size line, then one line per cage
+     * (total, op, x y of each cell)
+     * @param puzzle Puzzle to write
+     * @param out destination
+     * @throws IOException if out can't be written
+     */
+    static void writeText(Puzzle puzzle, Appendable out) throws IOException {
+        int n = puzzle.boardSize;
+        out.append(String.valueOf(n)).append(System.lineSeparator());
+        for (Cage cage : puzzle.cages) {
+            out.append(String.valueOf(cage.total)).append(' ').append(cage.op);
+            for (int cell : cage.cells)
+                out.append(' ').append(String.valueOf(cell / n)).append(' ').append(String.valueOf(cell % n));
+            out.append(System.lineSeparator());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * main() - converts a puzzle file (text or binary) to binary
+     * @param args in out
+     */
+    static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java KenKen convert in.txt out.kkb");
+            return;
+        }
+        int count = 0;
+        try (PuzzleReader reader = new PuzzleReader(args[0]); PuzzleWriter writer = new PuzzleWriter(args[1])) {
+            Puzzle puzzle;
+            while ((puzzle = reader.next()) != null) {
+                writer.write(puzzle);
+                count++;
+            }
+        }
+        System.out.println("Wrote " + count + " puzzles to " + args[1]);
+    }
+}
@@ -0,0 +1,151 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * SearchStats Object - counters of one solve: nodes visited, backtracks, max depth, values rejected per reason
+ * (row, col, or which cage), and wall time. Finishing a solve emits a JFR SolveEvent and adds the counters
+ * to SolverStats (JMX).
+ *
+ * Only collected when run with -Dkenken.stats=true. Solvers guard every call with "if (SearchStats.ENABLED)",
+ * ENABLED is a static final constant, so when it's false the JIT removes the calls from the hot path entirely.
+ */
+
+class SearchStats {
+    // true if solvers collect stats (read once at class load)
+    static final boolean ENABLED = Boolean.getBoolean("kenken.stats");
+
+    final String engine;    // name of solver collecting stats
+    private final Puzzle puzzle;
+
+    long nodes;             // search tree nodes visited
+    long backtracks;        // values undone after their subtree failed
+    int maxDepth;           // deepest search tree level reached
+    long rowRejections;     // values rejected because row already holds them
+    long colRejections;     // values rejected because col already holds them
+    final long[] cageRejections;    // values rejected by each cage's op/total (index = cage index)
+    boolean solved;         // true if a solution was found
+    long nanos;             // wall time of solve
+    private long startNanos;
+
+    /**
+     * SearchStats constructor - zeroed counters
+     * @param engine name of solver collecting stats
+     * @param puzzle Puzzle being solved
+     */
+    SearchStats(String engine, Puzzle puzzle) {
+        this.engine = engine;
+        this.puzzle = puzzle;
+        this.cageRejections = new long[puzzle.cages.length];
+    }
+
+    /**
+     * node() - counts a search tree node at depth
+     */
+    void node(int depth) {
+        nodes++;
+        if (depth > maxDepth)
+            maxDepth = depth;
+    }
+
+    /**
+     * start() - starts wall clock of solve
+     */
+    void start() {
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * finish() - stops wall clock, emits JFR event, adds counters to SolverStats
+     * @param solved true if a solution was found
+     */
+    void finish(boolean solved) {
+        this.nanos = System.nanoTime() - startNanos;
+        this.solved = solved;
+
+        SolveEvent event = new SolveEvent();
+        if (event.isEnabled()) {
+            event.engine = engine;
+            event.boardSize = puzzle.boardSize;
+            event.solved = solved;
+            event.nodes = nodes;
+            event.backtracks = backtracks;
+            event.maxDepth = maxDepth;
+            event.rowRejections = rowRejections;
+            event.colRejections = colRejections;
+            event.cageRejections = getCageRejections();
+            event.nanos = nanos;
+            event.commit();
+        }
+        SolverStats.get().add(this);
+    }
+
+    /**
+     * merge() - adds counters of a subtask's stats (ParallelSolver subtasks each count their own subtree)
+     * @param other stats of a subtask of the same solve
+     */
+    synchronized void merge(SearchStats other) {
+        nodes += other.nodes;
+        backtracks += other.backtracks;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        rowRejections += other.rowRejections;
+        colRejections += other.colRejections;
+        for (int c = 0; c < cageRejections.length; c++)
+            cageRejections[c] += other.cageRejections[c];
+    }
+
+    /**
+     * getCageRejections() - values rejected by all cages
+     */
+    long getCageRejections() {
+        long total = 0;
+        for (long count : cageRejections)
+            total += count;
+        return total;
+    }
+
+    /**
+     * toString() - summary line, then one line per cage that rejected a value (most rejections first)
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(
+                "%s: %s in %.3f ms, %d nodes, %d backtracks, max depth %d, rejected: %d row, %d col, %d cage%n",
+                engine, solved ? "solved" : "no solution", nanos / 1e6, nodes, backtracks, maxDepth,
+                rowRejections, colRejections, getCageRejections()));
+        Integer[] order = new Integer[cageRejections.length];
+        for (int c = 0; c < order.length; c++)
+            order[c] = c;
+        java.util.Arrays.sort(order, (a, b) -> Long.compare(cageRejections[b], cageRejections[a]));
+        for (int c : order) {
+            if (cageRejections[c] == 0)
+                break;
+            Cage cage = puzzle.cages[c];
+            sb.append(String.format("  cage %d (%d %c, %d cells): %d rejected%n",
+                    c, cage.total, cage.op, cage.cells.length, cageRejections[c]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * SolveEvent Object - JFR event committed once per finished solve
+     */
+    @Name("kenken.Solve")
+    @Label("KenKen Solve")
+    @Category("KenKen")
+    @Description("One finished KenKen solve and its search counters")
+    static class SolveEvent extends Event {
+        @Label("Engine") String engine;
+        @Label("Board Size") int boardSize;
+        @Label("Solved") boolean solved;
+        @Label("Nodes") long nodes;
+        @Label("Backtracks") long backtracks;
+        @Label("Max Depth") int maxDepth;
+        @Label("Row Rejections") long rowRejections;
+        @Label("Col Rejections") long colRejections;
+        @Label("Cage Rejections") long cageRejections;
+        @Label("Wall Time (ns)") long nanos;
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * SolutionCache Object - solutions of already solved puzzles, keyed by PuzzleFingerprint, so a puzzle seen before
+ * (even with rows/cols permuted, transposed, or cages reordered) is answered without searching.
+ * Solutions are kept in canonical cell order and mapped back to the caller's puzzle on a hit.
+ *  - layout: LRU map of at most capacity solutions in their puzzle's own cell order, keyed by the exact
+ *    PuzzleFingerprint.Layout, looked up first so exact repeats skip canonicalization
+ *  - memory: LRU map of at most capacity solutions
+ *  - disk (optional): append-only store file, indexed (key -> long offset) when opened and read record by record
+ *    with positional reads, so solutions survive restarts and the file can grow past 2 GB. Layout: MAGIC,
+ *    u8 VERSION, then per record 32 bytes key (hex ASCII), u8 board size, boardSize^2 bytes values (canonical
+ *    cell order). A truncated last record (crash mid-write) is dropped when the file is opened.
+ * Puzzles with no solution aren't cached. Safe to share between threads.
+ */
+
+class SolutionCache implements Closeable {
+    static final int DEFAULT_CAPACITY = 1024;
+    private static final int KEY_BYTES = 32;
+    // store file header: MAGIC then VERSION (bumped whenever the record layout or the fingerprint changes)
+    static final byte[] MAGIC = {'K', 'K', 'S', 'C'};
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + 1;
+    // bytes read at once while indexing (holds several records, each at most 32 + 1 + 31^2 bytes)
+    private static final int INDEX_CHUNK_BYTES = 1 << 16;
+
+    private final LinkedHashMap<PuzzleFingerprint.Layout, int[]> layouts;   // exact layout -> solution
+    private final LinkedHashMap<String, int[]> lru;     // key -> canonical solution, least recently used first
+
+    // disk store, null/empty if memory only
+    private final FileChannel store;
+    private final Map<String, Long> index = new HashMap<>();    // key -> record offset in store
+
+    private long hits;
+    private long misses;
+
+    /**
+     * SolutionCache constructor - memory only
+     * @param capacity most solutions kept in memory
+     */
+    SolutionCache(int capacity) {
+        this.layouts = newLru(capacity);
+        this.lru = newLru(capacity);
+        this.store = null;
+    }
+
+    /**
+     * SolutionCache constructor - memory plus disk store
+     * @param capacity most solutions kept in memory
+     * @param storeFile store file (created if missing)
+     * @throws IOException if store file can't be opened or read, or isn't a store (of this VERSION)
+     */
+    SolutionCache(int capacity, String storeFile) throws IOException {
+        this.layouts = newLru(capacity);
+        this.lru = newLru(capacity);
+        this.store = FileChannel.open(Paths.get(storeFile), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            checkHeader(storeFile);
+            index();
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+    }
+
+    /**
+     * checkHeader() - writes the header to a new (empty) store file, else checks the file starts with it
+     * @throws IOException if the file isn't a store, or is a store of another VERSION
+     */
+    private void checkHeader(String storeFile) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (store.size() == 0) {
+            header.put(MAGIC).put((byte) VERSION).flip();
+            while (header.hasRemaining())
+                store.write(header, header.position());
+            return;
+        }
+        read(header, 0);
+        boolean magic = !header.hasRemaining();
+        for (int i = 0; i < MAGIC.length && magic; i++)
+            magic = header.get(i) == MAGIC[i];
+        if (!magic)
+            throw new IOException(storeFile + ": not a solution store");
+        int version = header.get(MAGIC.length) & 0xFF;
+        if (version != VERSION)
+            throw new IOException(storeFile + ": solution store version " + version + ", expected " + VERSION);
+    }
+
+    /**
+     * index() - indexes every complete record of the store, a chunk of records per read, and drops a truncated
+     * last record so appends start on a record boundary
+     */
+    private void index() throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(INDEX_CHUNK_BYTES);
+        byte[] key = new byte[KEY_BYTES];
+        long pos = HEADER_BYTES;
+        while (true) {
+            chunk.clear();
+            read(chunk, pos);
+            chunk.flip();
+            // every record that ends inside the chunk
+            int offset = 0;
+            while (offset + KEY_BYTES + 1 <= chunk.limit()) {
+                int boardSize = chunk.get(offset + KEY_BYTES) & 0xFF;
+                int end = offset + KEY_BYTES + 1 + boardSize * boardSize;
+                if (end > chunk.limit())
+                    break;
+                chunk.get(offset, key);
+                index.put(new String(key, StandardCharsets.US_ASCII), pos + offset);
+                offset = end;
+            }
+            // a chunk holds any whole record, so none ending in it means the file ends (maybe mid-record)
+            if (offset == 0)
+                break;
+            pos += offset;
+        }
+        if (pos < store.size())
+            store.truncate(pos);
+    }
+
+    /**
+     * newLru() - access-ordered map evicting its least recently used entry past capacity
+     */
+    private static <K> LinkedHashMap<K, int[]> newLru(int capacity) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, int[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * get() - cached solution of puzzle
+     * @param puzzle Puzzle to look up
+     * @return solved board in puzzle's own cell order, or null if not cached
+     * @throws IOException if disk store can't be read
+     */
+    int[] get(Puzzle puzzle) throws IOException {
+        PuzzleFingerprint.Layout layout = new PuzzleFingerprint.Layout(puzzle);
+        int[] board = lookupLayout(layout);
+        if (board != null)
+            return board;
+        PuzzleFingerprint fingerprint = PuzzleFingerprint.of(puzzle);
+        int[] canonical = lookup(fingerprint.key, puzzle.boardSize);
+        return canonical == null ? null : storeLayout(layout, fingerprint.fromCanonical(canonical));
+    }
+
+    /**
+     * put() - caches solution of puzzle
+     * @param puzzle solved Puzzle
+     * @param board its solved board (cell id -> value)
+     * @throws IOException if disk store can't be written
+     */
+    void put(Puzzle puzzle, int[] board) throws IOException {
+        PuzzleFingerprint fingerprint = PuzzleFingerprint.of(puzzle);
+        store(fingerprint.key, puzzle.boardSize, fingerprint.toCanonical(board));
+        storeLayout(new PuzzleFingerprint.Layout(puzzle), board);
+    }
+
+    /**
+     * solve() - cached solution of puzzle, or solves it with solver and caches the result
+     * @param puzzle Puzzle to solve
+     * @param solver solves puzzle on a miss (returns board or null if no solution)
+     * @return solved board in puzzle's own cell order, or null if no solution
+     * @throws IOException if disk store can't be read or written
+     */
+    int[] solve(Puzzle puzzle, Function<Puzzle, int[]> solver) throws IOException {
+        // exact repeat: no fingerprint needed
+        PuzzleFingerprint.Layout layout = new PuzzleFingerprint.Layout(puzzle);
+        int[] board = lookupLayout(layout);
+        if (board != null)
+            return board;
+        // fingerprint once for both lookup and store
+        PuzzleFingerprint fingerprint = PuzzleFingerprint.of(puzzle);
+        int[] canonical = lookup(fingerprint.key, puzzle.boardSize);
+        if (canonical != null)
+            return storeLayout(layout, fingerprint.fromCanonical(canonical));
+        board = solver.apply(puzzle);
+        if (board != null) {
+            store(fingerprint.key, puzzle.boardSize, fingerprint.toCanonical(board));
+            storeLayout(layout, board);
+        }
+        return board;
+    }
+
+    /**
+     * getHits() - lookups answered from memory or disk
+     */
+    synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * getMisses() - lookups that found nothing
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (store != null)
+            store.close();
+    }
+
+    /**
+     * lookupLayout() - copy of the solution cached for layout (counted as a hit), null if none (not counted, the
+     * fingerprint lookup that follows counts it)
+     */
+    private synchronized int[] lookupLayout(PuzzleFingerprint.Layout layout) {
+        int[] board = layouts.get(layout);
+        if (board == null)
+            return null;
+        hits++;
+        return board.clone();
+    }
+
+    /**
+     * storeLayout() - keeps a copy of board (in its puzzle's own cell order) for layout
+     * @return board
+     */
+    private synchronized int[] storeLayout(PuzzleFingerprint.Layout layout, int[] board) {
+        layouts.put(layout, board.clone());
+        return board;
+    }
+
+    /**
+     * lookup() - canonical solution for key from memory, else from disk (then kept in memory)
+     */
+    private synchronized int[] lookup(String key, int boardSize) throws IOException {
+        int[] canonical = lru.get(key);
+        if (canonical == null && index.containsKey(key)) {
+            // values of the record (key and board size are known from the index)
+            ByteBuffer values = ByteBuffer.allocate(boardSize * boardSize);
+            read(values, index.get(key) + KEY_BYTES + 1);
+            if (values.hasRemaining())
+                throw new IOException("solution store truncated at record of " + key);
+            canonical = new int[boardSize * boardSize];
+            for (int cell = 0; cell < canonical.length; cell++)
+                canonical[cell] = values.get(cell);
+            lru.put(key, canonical);
+        }
+        if (canonical == null)
+            misses++;
+        else
+            hits++;
+        return canonical;
+    }
+
+    /**
+     * store() - keeps canonical solution in memory, appends it to disk store if it isn't there yet
+     */
+    private synchronized void store(String key, int boardSize, int[] canonical) throws IOException {
+        lru.put(key, canonical);
+        if (store == null || index.containsKey(key))
+            return;
+        ByteBuffer record = ByteBuffer.allocate(KEY_BYTES + 1 + canonical.length);
+        record.put(key.getBytes(StandardCharsets.US_ASCII));
+        record.put((byte) boardSize);
+        for (int value : canonical)
+            record.put((byte) value);
+        record.flip();
+        long pos = store.size();
+        while (record.hasRemaining())
+            store.write(record, pos + record.position());
+        index.put(key, pos);
+    }
+
+    /**
+     * read() - fills buffer from the store starting at file offset pos (positional, the channel's position is
+     * left alone), stops early at end of file
+     */
+    private void read(ByteBuffer buffer, long pos) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (store.read(buffer, pos + buffer.position()) < 0)
+                break;
+        }
+    }
+}
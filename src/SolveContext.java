@@ -0,0 +1,325 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SolveContext Object - state of one DFS solve of a Puzzle: the board, row/col masks and cage running totals.
+ * Each solve (or each parallel subtask) owns its own context, so any number can run on the same Puzzle at once
+ */
+
+class SolveContext {
+    final Puzzle puzzle;
+    final int[] board;          // flat array to keep track of board (cell id = x * boardSize + y)
+    private final int boardSize;
+    private final int[] rowMask;    // bitmask of values used in each row (bit v set if value v is placed in row)
+    private final int[] colMask;    // bitmask of values used in each col (bit v set if value v is placed in col)
+
+    // Cage running totals (updated by place()/remove() as values are added to and removed from board)
+    private final int[] cageFilled;     // number of cells in each cage with a value
+    private final int[] cageSum;        // sum of values in each cage
+    // product of values in each cage (1 when cage is empty). solvable() rejects a value once the product passes
+    // what the cage's total allows, so placed products stay within an int and value * product within a long
+    private final long[] cageProduct;
+    private final int[] cageValueCount; // number of times value v is in cage c, at [c * (boardSize + 1) + v]
+    private final int[] cageValueMask;  // bitmask of values in each cage (bit v set if cage holds v)
+
+    // set when search should stop: solve was cancelled (caller's flag), or a solution was found elsewhere
+    // (flag shared by the contexts of one parallel solve, same as cancelled otherwise)
+    private final AtomicBoolean cancelled;
+    private final AtomicBoolean found;
+
+    private long nodes;     // number of solveRec() calls (nodes of the search tree visited by this context)
+
+    // search counters of this context (null unless SearchStats.ENABLED)
+    final SearchStats stats;
+
+    /**
+     * SolveContext constructor - empty board for puzzle
+     * @param puzzle Puzzle to solve
+     * @param cancelled caller's flag, search stops once it is set (never written by the search)
+     */
+    SolveContext(Puzzle puzzle, AtomicBoolean cancelled) {
+        this(puzzle, cancelled, cancelled);
+    }
+
+    /**
+     * SolveContext constructor - empty board for puzzle, for one of several searches of the same solve
+     * @param puzzle Puzzle to solve
+     * @param cancelled caller's flag, search stops once it is set (never written by the search)
+     * @param found flag shared by every context of the same solve, set by whichever solves the board first
+     */
+    SolveContext(Puzzle puzzle, AtomicBoolean cancelled, AtomicBoolean found) {
+        this.puzzle = puzzle;
+        this.boardSize = puzzle.boardSize;
+        this.board = new int[boardSize * boardSize];
+        this.rowMask = new int[boardSize];
+        this.colMask = new int[boardSize];
+        int cageCount = puzzle.cages.length;
+        this.cageFilled = new int[cageCount];
+        this.cageSum = new int[cageCount];
+        this.cageProduct = new long[cageCount];
+        this.cageValueCount = new int[cageCount * (boardSize + 1)];
+        this.cageValueMask = new int[cageCount];
+        this.cancelled = cancelled;
+        this.found = found;
+        this.stats = SearchStats.ENABLED ? new SearchStats("solveRec", puzzle) : null;
+        // empty cage running totals
+        Arrays.fill(cageProduct, 1);
+    }
+
+    /**
+     * SolveContext constructor - empty board for puzzle, never cancelled
+     * @param puzzle Puzzle to solve
+     */
+    SolveContext(Puzzle puzzle) {
+        this(puzzle, new AtomicBoolean());
+    }
+
+    /**
+     * SolveContext copy constructor - copy of other's board and totals (used to hand a subtree to another thread)
+     * @param other context to copy
+     */
+    SolveContext(SolveContext other) {
+        this.puzzle = other.puzzle;
+        this.boardSize = other.boardSize;
+        this.board = other.board.clone();
+        this.rowMask = other.rowMask.clone();
+        this.colMask = other.colMask.clone();
+        this.cageFilled = other.cageFilled.clone();
+        this.cageSum = other.cageSum.clone();
+        this.cageProduct = other.cageProduct.clone();
+        this.cageValueCount = other.cageValueCount.clone();
+        this.cageValueMask = other.cageValueMask.clone();
+        this.cancelled = other.cancelled;
+        this.found = other.found;
+        // copy counts its own subtree, merged into the solve's stats by its owner
+        this.stats = SearchStats.ENABLED ? new SearchStats("solveRec", puzzle) : null;
+    }
+
+    /**
+     * solve() - solves board from cell 0 with solveRec(), timing and reporting the solve if stats are enabled
+     * @return true if board is solved
+     */
+    boolean solve() {
+        if (SearchStats.ENABLED)
+            stats.start();
+        boolean solved = solveRec(0);
+        if (SearchStats.ENABLED)
+            stats.finish(solved);
+        return solved;
+    }
+
+    /**
+     * solveRec() - DFS recursively solves KenKen board, cells visited in row-major order.
+     * Makes recursive call within for loop (no allocation: cells, cages and masks are all int arrays)
+     * @param cell cell id (x * boardSize + y) of position on board
+     * @return true if board is solved, false if no solution (or search was cancelled)
+     */
+    boolean solveRec(int cell) {
+        nodes++;
+        // base case: every cell of board is filled with working solutions
+        if (cell == board.length)
+            return true;
+        // another task found a solution, or solve was cancelled
+        if (isStopped())
+            return false;
+
+        // values that can be placed in cell
+        int candidates = candidates(cell);
+        if (SearchStats.ENABLED)
+            countNode(cell);
+
+        // try each candidate number (lowest set bit first)
+        for (int bits = candidates; bits != 0; bits &= bits - 1){
+            int i = Integer.numberOfTrailingZeros(bits);
+            // if solvable with number (i) in cell, given cage constraints
+            if (solvable(cell, i)) {
+                // add i to board at cell, mark i as used in row, col and cage
+                place(cell, i);
+                // recursive call, on updated board and next cell
+                boolean temp = solveRec(cell + 1);
+                // if works with number in cell, return true
+                if (temp)
+                    return true;
+                else {
+                    // reset cell to 0, free i in row, col and cage
+                    remove(cell, i);
+                    if (SearchStats.ENABLED)
+                        stats.backtracks++;
+                }
+            }
+            // value rejected by cell's cage totals
+            else if (SearchStats.ENABLED) {
+                stats.cageRejections[puzzle.cageOfCell[cell]]++;
+            }
+        }
+        // no board solution found
+        return false;
+    }
+
+    /**
+     * getNodes() - number of search tree nodes (solveRec() calls) visited by this context, a copy starts at 0
+     */
+    long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * isStopped() - true once search should stop (solve was cancelled, or a solution was found elsewhere)
+     */
+    boolean isStopped() {
+        return cancelled.get() || found.get();
+    }
+
+    /**
+     * countNode() - counts node at cell, and the values rejected there by row, col, or the cage's valid tuples
+     * (only called if SearchStats.ENABLED)
+     */
+    private void countNode(int cell) {
+        stats.node(cell);
+        int all = ((1 << boardSize) - 1) << 1;
+        int rowUsed = rowMask[cell / boardSize];
+        int colUsed = colMask[cell % boardSize] & ~rowUsed;
+        int cageAllows = puzzle.candidateMask[cell];
+        stats.rowRejections += Integer.bitCount(cageAllows & rowUsed);
+        stats.colRejections += Integer.bitCount(cageAllows & colUsed);
+        stats.cageRejections[puzzle.cageOfCell[cell]] += Integer.bitCount(all & ~cageAllows);
+    }
+
+    /**
+     * candidates() - values cell's cage allows, minus values already used in cell's row or col
+     * @param cell cell id
+     * @return bitmask of values (bit v set if v can be tried in cell)
+     */
+    int candidates(int cell) {
+        return puzzle.candidateMask[cell] & ~(rowMask[cell / boardSize] | colMask[cell % boardSize]);
+    }
+
+    /**
+     * place() - adds value to board at cell, marks value as used in row, col and cage
+     */
+    void place(int cell, int value) {
+        int c = puzzle.cageOfCell[cell];
+        board[cell] = value;
+        rowMask[cell / boardSize] |= 1 << value;
+        colMask[cell % boardSize] |= 1 << value;
+        cageFilled[c]++;
+        cageSum[c] += value;
+        cageProduct[c] *= value;
+        cageValueCount[c * (boardSize + 1) + value]++;
+        cageValueMask[c] |= 1 << value;
+    }
+
+    /**
+     * remove() - resets cell to 0, frees value in row, col and cage
+     */
+    void remove(int cell, int value) {
+        int c = puzzle.cageOfCell[cell];
+        board[cell] = 0;
+        rowMask[cell / boardSize] &= ~(1 << value);
+        colMask[cell % boardSize] &= ~(1 << value);
+        cageFilled[c]--;
+        cageSum[c] -= value;
+        cageProduct[c] /= value;
+        // only clear value's bit once no cell in cage holds value
+        if (--cageValueCount[c * (boardSize + 1) + value] == 0)
+            cageValueMask[c] &= ~(1 << value);
+    }
+
+    /**
+     * solvable() - checks if value can be placed in cell's cage, using cage's running totals (constant time)
+     * [row/col constraints and values no valid cage tuple allows are already removed by candidates()]
+     * @param cell cell value is placed in
+     * @param value value to be placed in cage
+     * @return boolean if value can be placed in that position on board (true/false)
+     */
+    boolean solvable(int cell, int value) {
+        int c = puzzle.cageOfCell[cell];
+        Cage cage = puzzle.cages[c];
+        // number of filled positions in cage once value is placed
+        int filledPositions = cageFilled[c] + 1;
+        // number of positions still empty after value is placed
+        int emptyPositions = cage.cells.length - filledPositions;
+
+        // get total value of cage with value included (call getCageTotalWithValue() method)
+        long cageTotalWithValue = getCageTotalWithValue(c, value);
+
+        // if all cells in cage are filled, cage must have reached it's total
+        if (emptyPositions == 0)
+            return cageTotalWithValue == cage.total;
+
+        // else there are still empty cells in cage:
+        switch (cage.op) {
+            // each empty position adds at least 1, so there must be room left for them
+            case '+':
+                return cageTotalWithValue + emptyPositions <= cage.total;
+            // product so far must divide the total (empty positions multiply it up to total), so it can't pass it
+            case '*':
+                return cageTotalWithValue <= cage.total && cage.total % cageTotalWithValue == 0;
+            // full cage is max / others with others <= max / total, so its product max * others can't pass
+            // boardSize * boardSize / total (the total itself is only decided once the cage is full)
+            case '/':
+                return cage.total > 0 && product(cageProduct[c], value) <= boardSize * boardSize / cage.total;
+            // '-' total is reduced/changed by later values, can't be decided until cage is full
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * getCageMax() - max value in cage c, assuming value is also placed in cage
+     * @param c cage index
+     * @param value int value being placed in cage
+     * @return int max value in cage
+     */
+    private int getCageMax(int c, int value) {
+        // highest set bit of cageValueMask is the current max (0 if cage is empty)
+        int max = 31 - Integer.numberOfLeadingZeros(cageValueMask[c]);
+        return Math.max(max, value);
+    }
+
+    /**
+     * product() - product * value, saturated at Long.MAX_VALUE instead of overflowing (value <= 31)
+     */
+    private static long product(long product, int value) {
+        return product >= 1L << 58 ? Long.MAX_VALUE : product * value;
+    }
+
+    /**
+     * getCageTotalWithValue - total of cage c if value is placed in cage, computed from running totals
+     * @param c cage index
+     * @param value int value being placed in cage
+     * @return long value of result of placing value in cage (products of big cages don't fit in an int)
+     */
+    long getCageTotalWithValue(int c, int value) {
+        char op = puzzle.cages[c].op;
+        // IF ADDITION:
+        if (op == '+'){
+            return cageSum[c] + value;
+        }
+        // IF SUBTRACTION:
+        else if (op == '-'){
+            // max minus every other value: max - (sum - max)
+            int max = getCageMax(c, value);
+            return 2 * max - (cageSum[c] + value);
+        }
+        // IF MULTIPLICATION:
+        else if (op == '*'){
+            return product(cageProduct[c], value);
+        }
+        // IF DIVISION:
+        else if (op == '/'){
+            // max divided by every other value: max / (product / max)
+            int max = getCageMax(c, value);
+            long others = product(cageProduct[c], value) / max;
+            // values that don't divide max evenly can never reach total, return 0
+            if (max % others != 0)
+                return 0;
+            return max / others;
+        }
+        // FREE SPACE   (op == '#')
+        else {
+            // value must be equal to total in this space
+            return value;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Solver Interface - common interface of the solving engines, so callers can pick an engine per workload
+ * and cross-check engines against each other.
+ * Engines by name (get()):
+ *  - "propagator" constraint propagation + MRV search (Propagator)
+ *  - "dfs"        plain recursive DFS (SolveContext.solveRec())
+ *  - "iterative"  same DFS with an explicit stack, for big boards (IterativeSolver)
+ *  - "backjump"   same DFS with conflict-directed backjumping and nogood learning (BackjumpSolver)
+ *  - "parallel"   DFS split across a ForkJoinPool (ParallelSolver)
+ *  - "dlx"        exact cover with Dancing Links (DancingLinks), propagator for puzzles it doesn't fit
+ *  - "portfolio"  several orderings raced on separate threads, first answer wins (PortfolioSolver)
+ */
+
+interface Solver {
+    // names accepted by get()
+    String[] NAMES = {"propagator", "dfs", "iterative", "backjump", "parallel", "dlx", "portfolio"};
+
+    /**
+     * solve() - solves puzzle
+     * @param puzzle Puzzle to solve
+     * @param cancelled search stops (returns null) once this is set (only read, engines stop their own
+     *                  subtasks with flags of their own)
+     * @return solved board (cell id -> value), or null if no solution (or cancelled)
+     */
+    int[] solve(Puzzle puzzle, AtomicBoolean cancelled);
+
+    /**
+     * solve() - solves puzzle, never cancelled
+     */
+    default int[] solve(Puzzle puzzle) {
+        return solve(puzzle, new AtomicBoolean());
+    }
+
+    /**
+     * get() - engine by name
+     * @param name one of NAMES
+     * @return Solver, or null if name is unknown
+     */
+    static Solver get(String name) {
+        switch (name) {
+            case "propagator":
+                return (puzzle, cancelled) -> new Propagator(puzzle, cancelled).solve();
+            case "dfs":
+                return (puzzle, cancelled) -> {
+                    SolveContext ctx = new SolveContext(puzzle, cancelled);
+                    return ctx.solve() ? ctx.board : null;
+                };
+            case "iterative":
+                return (puzzle, cancelled) -> new IterativeSolver(puzzle, cancelled).solve();
+            case "backjump":
+                return (puzzle, cancelled) -> new BackjumpSolver(puzzle, cancelled).solve();
+            case "parallel":
+                return new ParallelSolver();
+            case "dlx":
+                return (puzzle, cancelled) -> DancingLinks.fits(puzzle)
+                        ? new DancingLinks(puzzle, cancelled).solve()
+                        : new Propagator(puzzle, cancelled).solve();
+            case "portfolio":
+                return PortfolioSolver.getDefault();
+            default:
+                return null;
+        }
+    }
+}
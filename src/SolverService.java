@@ -0,0 +1,260 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * SolverService Object - long-running local HTTP service solving puzzles, so callers skip JVM startup and the GUI.
+ *
+ * POST /solve with a puzzle in the test_files text format (or binary format) as the body. Optional query params:
+ *  - timeout=ms  deadline of the request, 1 - MAX_TIMEOUT_MILLIS (default: service's -timeout), reading and
+ *                searching the puzzle are cancelled once it passes
+ *  - engine=name solve with another engine than Propagator (dfs, parallel, dlx, see Solver)
+ * Responses (text/plain):
+ *  - 200 one line per board row as the GUI shows it (cells (0, y) - (n-1, y)), values separated by spaces
+ *  - 400 malformed puzzle (message gives line and col), cage of more than MAX_CAGE_CELLS cells, unknown engine or
+ *    bad timeout, 405 not a POST, 413 body over MAX_BODY_BYTES
+ *  - 422 puzzle has no solution
+ *  - 500 solve failed (e.g. out of memory), so the caller always gets an answer
+ *  - 503 every solve slot stayed busy until the deadline, 504 deadline passed while reading or searching
+ *
+ * Each request is handled on its own virtual thread (Java 21+), and at most maxSolves requests read and search
+ * their puzzle at once (building cage domains and searching are CPU bound, more would only slow each other down).
+ * The body itself is read before taking a slot.
+ *
+ * Usage: java KenKen serve [-port 8080] [-max N] [-timeout ms]
+ */
+
+class SolverService {
+    static final int DEFAULT_PORT = 8080;
+    static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+    // longest deadline a request may ask for (also keeps nanoTime() + timeout from overflowing)
+    static final long MAX_TIMEOUT_MILLIS = 600_000;
+    // largest request body (a 31x31 puzzle in text format is well under this)
+    static final int MAX_BODY_BYTES = 1 << 16;
+    // most cells of a cage (real puzzles stay far below, larger cages only make reading slow)
+    static final int MAX_CAGE_CELLS = 16;
+
+    private final HttpServer server;
+    private final ExecutorService requests;     // runs each request's handler
+    private final Semaphore solveSlots;         // limits searches running at once
+    private final long defaultTimeoutMillis;
+    // sets cancel flags of requests whose deadline passed
+    private final ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "solver-deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * SolverService constructor - binds to port on the loopback address (call start() to accept requests)
+     * @param port port to listen on (0 for any free port)
+     * @param maxSolves most searches running at once
+     * @param defaultTimeoutMillis deadline of requests that don't give their own
+     * @throws IOException if port can't be bound
+     */
+    SolverService(int port, int maxSolves, long defaultTimeoutMillis) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // one virtual thread per request: handlers mostly wait (body, solve slot), searches are bounded by solveSlots
+        this.requests = Executors.newVirtualThreadPerTaskExecutor();
+        this.solveSlots = new Semaphore(maxSolves);
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+        // timers of requests that finish in time are dropped right away, not kept until their deadline
+        deadlines.setRemoveOnCancelPolicy(true);
+        server.setExecutor(requests);
+        server.createContext("/solve", this::handle);
+    }
+
+    /**
+     * main() - parses command line args, runs service until the JVM is stopped
+     * @param args [-port 8080] [-max N] [-timeout ms]
+     */
+    static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int maxSolves = Runtime.getRuntime().availableProcessors();
+        long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-port"))
+                port = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-max"))
+                maxSolves = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("-timeout"))
+                timeoutMillis = Long.parseLong(args[i + 1]);
+        }
+        if (maxSolves < 1 || timeoutMillis < 1 || timeoutMillis > MAX_TIMEOUT_MILLIS) {
+            System.err.println("Usage: java KenKen serve [-port 8080] [-max N (1+)] [-timeout ms (1 - "
+                    + MAX_TIMEOUT_MILLIS + ")]");
+            return;
+        }
+        SolverService service = new SolverService(port, maxSolves, timeoutMillis);
+        service.start();
+        System.err.println("Solving on http://localhost:" + service.getPort() + "/solve (" + maxSolves
+                + " solves at once, " + timeoutMillis + " ms deadline)");
+    }
+
+    /**
+     * start() - starts accepting requests (in the background)
+     */
+    void start() {
+        server.start();
+    }
+
+    /**
+     * stop() - stops accepting requests, waits up to delaySeconds for running requests
+     */
+    void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        requests.shutdownNow();
+        deadlines.shutdownNow();
+    }
+
+    /**
+     * getPort() - port the service listens on
+     */
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * handle() - reads the request body, then (holding a solve slot, within the request's deadline) reads the
+     * puzzle in it and solves it, sends the board
+     * @param exchange HTTP request/response
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, "POST a puzzle to /solve");
+                return;
+            }
+            long timeoutMillis = defaultTimeoutMillis;
+            Solver solver = Solver.get("propagator");
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null) {
+                for (String param : query.split("&")) {
+                    if (param.startsWith("timeout="))
+                        timeoutMillis = Long.parseLong(param.substring("timeout=".length()));
+                    else if (param.startsWith("engine="))
+                        solver = Solver.get(param.substring("engine=".length()));
+                }
+            }
+            if (solver == null) {
+                send(exchange, 400, "unknown engine, expected one of: " + String.join(", ", Solver.NAMES));
+                return;
+            }
+            if (timeoutMillis < 1 || timeoutMillis > MAX_TIMEOUT_MILLIS) {
+                send(exchange, 400, "timeout must be 1 - " + MAX_TIMEOUT_MILLIS + " ms");
+                return;
+            }
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+            // one byte past the limit tells an oversized body from one of exactly MAX_BODY_BYTES
+            byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                send(exchange, 413, "body over " + MAX_BODY_BYTES + " bytes");
+                return;
+            }
+
+            // wait for a free solve slot, but not past the deadline
+            if (!solveSlots.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                send(exchange, 503, "busy: no solve slot free before deadline");
+                return;
+            }
+            int status;
+            String reply;
+            AtomicBoolean cancelled = new AtomicBoolean();
+            ScheduledFuture<?> timer = deadlines.schedule(() -> cancelled.set(true),
+                    deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            try {
+                int[] board = null;
+                // reading builds every cage's domain, the same limits as the search apply
+                Puzzle puzzle = read(body, cancelled);
+                if (puzzle != null)
+                    board = solver.solve(puzzle, cancelled);
+                if (board != null) {
+                    status = 200;
+                    reply = format(board, puzzle.boardSize);
+                } else if (cancelled.get()) {
+                    status = 504;
+                    reply = "deadline of " + timeoutMillis + " ms passed";
+                } else if (puzzle == null) {
+                    status = 400;
+                    reply = "request: no puzzle in body";
+                } else {
+                    status = 422;
+                    reply = "no solution";
+                }
+            } catch (PuzzleReader.FormatException e) {
+                status = 400;
+                reply = e.getMessage();
+            } catch (InterruptedIOException e) {
+                status = 504;
+                reply = "deadline of " + timeoutMillis + " ms passed while reading the puzzle";
+            } catch (RuntimeException | OutOfMemoryError e) {
+                status = 500;
+                reply = "solve failed: " + e;
+            } finally {
+                timer.cancel(false);
+                solveSlots.release();
+            }
+            send(exchange, status, reply);
+        } catch (NumberFormatException e) {
+            send(exchange, 400, "bad query: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // service is stopping
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * read() - puzzle in request body (null if none), cages capped at MAX_CAGE_CELLS
+     * @throws InterruptedIOException if cancelled is set before every cage is read
+     */
+    private static Puzzle read(byte[] body, AtomicBoolean cancelled) throws IOException {
+        try (PuzzleReader reader = new PuzzleReader("request", Channels.newChannel(new ByteArrayInputStream(body)),
+                MAX_CAGE_CELLS, cancelled)) {
+            return reader.next();
+        }
+    }
+
+    /**
+     * format() - one line per board row as the GUI shows it (the GUI draws cell (x, y) at col x, row y),
+     * values separated by spaces
+     */
+    private static String format(int[] board, int boardSize) {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < boardSize; y++) {
+            for (int x = 0; x < boardSize; x++)
+                sb.append(x == 0 ? "" : " ").append(board[x * boardSize + y]);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * send() - sends status and text body
+     */
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body.endsWith("\n") ? body : body + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.ObjectName;
+
+/**
+ * SolverStats Object - counters of every SearchStats finished in this JVM, exposed over JMX.
+ * Only created (and registered with the platform MBeanServer) when SearchStats.ENABLED is set
+ */
+
+class SolverStats implements SolverStatsMXBean {
+    // JMX name counters are registered under
+    static final String OBJECT_NAME = "kenken:type=SolverStats";
+
+    private static SolverStats instance;
+
+    private final LongAdder solves = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAdder rowRejections = new LongAdder();
+    private final LongAdder colRejections = new LongAdder();
+    private final LongAdder cageRejections = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    /**
+     * get() - shared instance, registered with the platform MBeanServer on first use
+     */
+    static synchronized SolverStats get() {
+        if (instance == null) {
+            instance = new SolverStats();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instance, new ObjectName(OBJECT_NAME));
+            } catch (Exception e) {
+                System.err.println("Error registering " + OBJECT_NAME + ": " + e.getMessage());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * add() - adds a finished solve's counters
+     * @param stats counters of one solve
+     */
+    void add(SearchStats stats) {
+        solves.increment();
+        if (stats.solved)
+            solved.increment();
+        nodes.add(stats.nodes);
+        backtracks.add(stats.backtracks);
+        rowRejections.add(stats.rowRejections);
+        colRejections.add(stats.colRejections);
+        cageRejections.add(stats.getCageRejections());
+        totalNanos.add(stats.nanos);
+        maxDepth.accumulateAndGet(stats.maxDepth, Math::max);
+    }
+
+    @Override public long getSolves() { return solves.sum(); }
+    @Override public long getSolved() { return solved.sum(); }
+    @Override public long getNodes() { return nodes.sum(); }
+    @Override public long getBacktracks() { return backtracks.sum(); }
+    @Override public long getRowRejections() { return rowRejections.sum(); }
+    @Override public long getColRejections() { return colRejections.sum(); }
+    @Override public long getCageRejections() { return cageRejections.sum(); }
+    @Override public int getMaxDepth() { return maxDepth.get(); }
+    @Override public double getTotalMillis() { return totalNanos.sum() / 1e6; }
+
+    @Override
+    public void reset() {
+        solves.reset();
+        solved.reset();
+        nodes.reset();
+        backtracks.reset();
+        rowRejections.reset();
+        colRejections.reset();
+        cageRejections.reset();
+        totalNanos.reset();
+        maxDepth.set(0);
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * SolverStatsMXBean - JMX view of search counters summed over every solve since the JVM started
+ * (registered as "kenken:type=SolverStats" when run with -Dkenken.stats=true)
+ */
+
+public interface SolverStatsMXBean {
+    long getSolves();           // number of solves finished
+    long getSolved();           // number of solves that found a solution
+    long getNodes();            // search tree nodes visited
+    long getBacktracks();       // values undone after their subtree failed
+    long getRowRejections();    // values rejected because row already holds them
+    long getColRejections();    // values rejected because col already holds them
+    long getCageRejections();   // values rejected by a cage's op/total
+    int getMaxDepth();          // deepest search tree level reached by any solve
+    double getTotalMillis();    // wall time of every solve
+    void reset();               // zero every counter
+}